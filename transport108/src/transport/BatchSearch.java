@@ -0,0 +1,64 @@
+package transport;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Requests and answers for TripSearcher.searchBatch(...), used by partners that send
+ * hundreds of route/date questions at once. Every query gets its own Result,
+ * a query without trips has an error instead of stopping the whole batch.
+ */
+public class BatchSearch {
+
+    public static class Query {
+        private final String departure;
+        private final String arrival;
+        private final LocalDate date;
+
+        public Query(String departure, String arrival, LocalDate date) {
+            this.departure = departure;
+            this.arrival = arrival;
+            this.date = date;
+        }
+
+        public String getDeparture() { return departure; }
+        public String getArrival() { return arrival; }
+        public LocalDate getDate() { return date; }
+
+        @Override
+        public String toString() {
+            return departure + " → " + arrival + " on " + date;
+        }
+    }
+
+    public static class Result {
+        private final Query query;
+        private final List<Transport> trips;
+        private final BookingException error;
+
+        Result(Query query, List<Transport> trips) {
+            this.query = query;
+            this.trips = trips;
+            this.error = null;
+        }
+
+        Result(Query query, BookingException error) {
+            this.query = query;
+            this.trips = Collections.emptyList();
+            this.error = error;
+        }
+
+        public Query getQuery() { return query; }
+        public List<Transport> getTrips() { return trips; }
+        public BookingException getError() { return error; }
+        public boolean isSuccess() { return error == null; }
+
+        @Override
+        public String toString() {
+            if (isSuccess()) {
+                return query + ": " + trips.size() + " trip(s)";
+            }
+            return query + ": " + error.getMessage();
+        }
+    }
+}
\ No newline at end of file
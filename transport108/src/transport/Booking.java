@@ -8,17 +8,43 @@ import java.util.ArrayList;
 
 public class Booking {
     private String bookingId;
-    private Transport transport;
-    private List<Seat> bookedSeats;
+    private volatile Transport transport;    // replaced when a timetable reload changes the trip
+    private volatile List<Seat> bookedSeats;
     private String customerName;
     private int passengerCount;
     private double totalPrice;
     private LocalDateTime bookingTime;
     private boolean isPremium;
+    private boolean cancelled;    // guarded by this, a second cancel() must not free seats again
 
+    // takes the seats (all or nothing), if another booking got one of them first it fails
     public Booking(Transport transport, List<Seat> seats, int passengerCount, String customerName,
-                   boolean isPremium) {
-        this.bookingId = generateBookingId();
+                   boolean isPremium) throws BookedSeatsException {
+        this(transport, seats, passengerCount, customerName, isPremium, false);
+    }
+
+    // seatsAlreadyTaken = the seats are ours already (a confirmed SeatHold), nothing to claim
+    Booking(Transport transport, List<Seat> seats, int passengerCount, String customerName,
+            boolean isPremium, boolean seatsAlreadyTaken) throws BookedSeatsException {
+        this(generateBookingId(), transport, seats, passengerCount, customerName, isPremium, LocalDateTime.now());
+
+        //reserve all seats at once
+        if (!seatsAlreadyTaken && !transport.claimSeats(seats)) {
+            List<String> taken = new ArrayList<>();
+            for (Seat seat : seats) {
+                if (seat.isOccupied()) {
+                    taken.add(seat.getSeatNumber());
+                }
+            }
+            throw new BookedSeatsException("Sorry, seat(s) " + String.join(", ", taken)
+                    + " were just booked by someone else. Please choose again.");
+        }
+    }
+
+    // a booking read back from the BookingJournal, the journal takes care of the seats
+    Booking(String bookingId, Transport transport, List<Seat> seats, int passengerCount, String customerName,
+            boolean isPremium, LocalDateTime bookingTime) {
+        this.bookingId = bookingId;
         this.transport = transport;
         this.bookedSeats = new ArrayList<>(seats);
         this.passengerCount = passengerCount;
@@ -26,17 +52,13 @@ public class Booking {
 
         this.isPremium = isPremium;
         this.totalPrice = calculatePrice();
-        this.bookingTime = LocalDateTime.now();
-
-        //reserve all seats
-        for (Seat seat : seats) {
-            seat.bookSeat();
-        }
+        this.bookingTime = bookingTime;
     }
 
     //help generate booking id to keep track
-    private String generateBookingId() {
-        return "BK-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    // 12 hex digits: the journal finds bookings by id, with 8 two bookings got the same id after ~100k
+    private static String generateBookingId() {
+        return "BK-" + UUID.randomUUID().toString().replace("-", "").substring(0, 12).toUpperCase();
     }
 
     // calculate total price for passengers depending on class and because we get transport.getPRice
@@ -45,11 +67,26 @@ public class Booking {
         return transport.getPrice(isPremium) * passengerCount;
     }
 
-    public void cancel() {
+    // only the first call frees the seats, by then they may belong to somebody else
+    public synchronized void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
         //release all seats that were booked
+        transport.releaseSeats(bookedSeats);
+    }
+
+    public synchronized boolean isCancelled() { return cancelled; }
+
+    // the trip got new times/prices in a timetable reload, the new Transport shares the seats of the old one
+    synchronized void moveTo(Transport updated) {
+        List<Seat> seats = new ArrayList<>(bookedSeats.size());
         for (Seat seat : bookedSeats) {
-            seat.release();
+            seats.add(new Seat(updated, seat.getIndex()));
         }
+        this.bookedSeats = seats;
+        this.transport = updated;
     }
 
     // Getters
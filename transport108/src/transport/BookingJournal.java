@@ -0,0 +1,660 @@
+package transport;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of every booking and cancellation, so bookings survive a restart.
+ *
+ * The log lives in a folder and is cut into segments (journal-000001.log, journal-000002.log...).
+ * Every segment starts with magic "BKJL" + version, then one record after the other:
+ *   length (int), CRC32 (int), type (BOOK/CANCEL/GROUP, byte), fields
+ * A GROUP record holds the BOOK records of all legs of a GroupBooking, so after a crash either
+ * every leg is back or none is (one CRC for all of them).
+ * A record at the end of the newest segment that is cut off or has a wrong CRC can only be a write
+ * that never finished (crash, power loss), so replay stops there and cuts the segment back.
+ *
+ * How long a booking waits for the disk is the Durability:
+ *   SYNC   every record is forced to disk before the booking is confirmed (slowest, nothing lost)
+ *   GROUP  also forced before confirming, but one force covers all records written in the
+ *          meantime: while one thread forces the others wait and are usually done when it is
+ *          (group commit, nothing lost, much faster with many bookings at once)
+ *   ASYNC  confirmed once it is written, a background thread forces every 200ms
+ *          (fastest, a crash can lose the last moment of bookings)
+ * Default is GROUP, can be set with -Dtransport.journal.durability=sync|group|async
+ *
+ * Compaction: when a segment is full (-Dtransport.journal.segment.kb, default 4096) the next one
+ * is started. A background thread then folds the full segments into a snapshot (snapshot-N.bin =
+ * the bookings still alive before segment N, in the same record format) and deletes them. It only
+ * reads files that are not written anymore and never touches the live Transports/Bookings, so
+ * booking goes on while it runs. A restart reads the newest snapshot plus the segments after it,
+ * that is the live bookings plus at most a segment or two, no matter how long the system ran.
+ */
+public class BookingJournal implements Closeable {
+
+    public enum Durability { SYNC, GROUP, ASYNC }
+
+    private static final int MAGIC = 0x424B4A4C; // "BKJL"
+    private static final int SNAPSHOT_MAGIC = 0x424B534E; // "BKSN"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int SNAPSHOT_HEADER_SIZE = 8 + 8 + 4;
+    private static final byte BOOK = 1;
+    private static final byte CANCEL = 2;
+    private static final byte GROUP = 3;
+    private static final long ASYNC_FLUSH_MILLIS = 200;
+    private static final long COMPACT_CHECK_MILLIS = 60_000;
+    private static final long DEFAULT_SEGMENT_BYTES = 4096 * 1024;
+
+    private final Path folder;
+    private final Durability durability;
+    private final long segmentBytes;
+
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();     // taken before writeLock
+    private final Object compactLock = new Object();  // replay and compaction read the same files
+    private FileChannel channel;    // the newest segment, guarded by writeLock
+    private long segment;           // its number, guarded by writeLock
+    private long segmentStart;      // where its first byte is in the whole log, guarded by writeLock
+    private long written;           // end of the last record in the whole log, guarded by writeLock
+    private volatile long forced;   // everything before this is on disk
+    private volatile boolean open = true;
+    private final Thread flusher;
+    private final Thread compactor;
+
+    public BookingJournal(Path folder) throws IOException {
+        this(folder, Durability.valueOf(System.getProperty("transport.journal.durability", "group").toUpperCase()),
+                Long.getLong("transport.journal.segment.kb", DEFAULT_SEGMENT_BYTES / 1024) * 1024);
+    }
+
+    public BookingJournal(Path folder, Durability durability, long segmentBytes) throws IOException {
+        if (segmentBytes < 1) {
+            throw new IllegalArgumentException("Segment size must be positive, got " + segmentBytes);
+        }
+        this.folder = folder;
+        this.durability = durability;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(folder);
+
+        // go on writing the newest segment, or start the first one after the snapshot
+        List<Long> segments = numbered("journal-", ".log");
+        List<Long> snapshots = numbered("snapshot-", ".bin");
+        if (!segments.isEmpty()) {
+            segment = segments.get(segments.size() - 1);
+        } else if (!snapshots.isEmpty()) {
+            segment = snapshots.get(snapshots.size() - 1);
+        } else {
+            segment = 1;
+        }
+        channel = openSegment(segment);
+        written = channel.size();
+        forced = written;
+
+        if (durability == Durability.ASYNC) {
+            flusher = new Thread(this::flushLoop, "booking-journal-flush");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+        compactor = new Thread(this::compactLoop, "booking-journal-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        Path file = segmentFile(number);
+        FileChannel opened = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (opened.size() < HEADER_SIZE) {
+            // new (or never finished) segment
+            opened.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) {
+                opened.write(header, header.position());
+            }
+            opened.force(true);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && opened.read(header, header.position()) >= 0) {
+                // read the whole header
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                opened.close();
+                throw new IOException(file + " is not a booking journal (or from another version)");
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * Reads the newest snapshot and the journal after it, and puts the bookings back onto the trips
+     * (the ones still alive take their seats again at the end, see takeSeats). Returns the bookings
+     * that were not cancelled, oldest first.
+     * Bookings of trips that are not in the timetable anymore are skipped. Call it once, before
+     * writing anything. The trips are found with TimetableSnapshot.lookup, so on a snapshot only
+     * the booked trips are made.
+     */
+    public List<Booking> replay(List<Transport> transports) throws IOException {
+        long start = System.nanoTime();
+        TimetableSnapshot.TripLookup byTrip = TimetableSnapshot.lookup(transports);
+
+        Map<String, Booking> live = new LinkedHashMap<>();
+        int[] counts = new int[2]; // records, skipped
+        RecordHandler apply = (type, data, from, to) -> {
+            if (type == BOOK) {
+                if (!replayBooking(data, byTrip, live)) {
+                    counts[1]++;
+                }
+            } else if (type == CANCEL) {
+                live.remove(getString(data));
+            } else if (type == GROUP) {
+                int legs = data.getShort();
+                for (int i = 0; i < legs; i++) {
+                    int length = data.getInt();
+                    int next = data.position() + length;
+                    data.get();     // BOOK
+                    if (!replayBooking(data, byTrip, live)) {
+                        counts[1]++;
+                    }
+                    data.position(next);
+                }
+            }
+            counts[0]++;
+        };
+
+        synchronized (compactLock) {
+            long first = readSnapshot(apply);
+            long active;
+            synchronized (writeLock) {
+                active = segment;
+            }
+            for (long number : numbered("journal-", ".log")) {
+                if (number < first) {
+                    continue;   // already in the snapshot, compaction stopped before deleting it
+                }
+                Path file = segmentFile(number);
+                long size = Files.size(file);
+                long goodEnd = readRecords(file, HEADER_SIZE, apply);
+                if (goodEnd == size) {
+                    continue;
+                }
+                if (number != active) {
+                    throw new IOException(file + " is damaged at byte " + goodEnd + ", only the newest segment may end early");
+                }
+                System.err.println("⚠️ " + file + ": the last " + (size - goodEnd)
+                        + " bytes are an unfinished write, they are cut off");
+                synchronized (writeLock) {
+                    channel.truncate(goodEnd);
+                    channel.force(true);
+                    written = segmentStart + goodEnd;
+                    forced = written;
+                }
+            }
+        }
+
+        if (counts[1] > 0) {
+            System.err.println("⚠️ " + counts[1] + " journal booking/s are for trips that don't exist anymore, skipped");
+        }
+        takeSeats(live);
+        System.out.printf("📒 Replayed %d journal records (%d bookings) in %.0f ms%n",
+                counts[0], live.size(), (System.nanoTime() - start) / 1e6);
+        return new ArrayList<>(live.values());
+    }
+
+    private boolean replayBooking(ByteBuffer data, TimetableSnapshot.TripLookup byTrip, Map<String, Booking> live) {
+        String bookingId = getString(data);
+        String tripId = getString(data);
+        long epochDay = data.getInt();
+        String customer = getString(data);
+        int passengers = data.getInt();
+        boolean premium = data.get() != 0;
+        LocalDateTime time = LocalDateTime.ofEpochSecond(data.getLong(), 0, ZoneOffset.UTC);
+        int seatCount = data.getShort();
+
+        Transport transport = byTrip.find(tripId, epochDay);
+        if (transport == null) {
+            return false;
+        }
+        List<Seat> seats = new ArrayList<>(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            int index = data.getInt();
+            if (index < 0 || index >= transport.getTotalSeats()) {
+                return false;
+            }
+            seats.add(new Seat(transport, index));
+        }
+        live.put(bookingId, new Booking(bookingId, transport, seats, passengers, customer, premium, time));
+        return true;
+    }
+
+    /**
+     * The bookings that are still alive take their seats (cancelled ones never touch a seat).
+     * A seat the simulated occupancy took already goes to the booking, as if the simulator had
+     * skipped it, so the seat has one owner and a cancel later frees it for good. A seat that
+     * another booking of the journal has is a real conflict, that booking is not restored.
+     */
+    private static void takeSeats(Map<String, Booking> live) {
+        Map<Transport, BitSet> booked = new IdentityHashMap<>();
+        int takenOver = 0;
+        Iterator<Booking> bookings = live.values().iterator();
+        while (bookings.hasNext()) {
+            Booking booking = bookings.next();
+            Transport transport = booking.getTransport();
+            BitSet seatsOfBookings = booked.computeIfAbsent(transport, t -> new BitSet(t.getTotalSeats()));
+
+            List<String> clashes = new ArrayList<>();
+            for (Seat seat : booking.getBookedSeats()) {
+                if (seatsOfBookings.get(seat.getIndex())) {
+                    clashes.add(seat.getSeatNumber());
+                }
+            }
+            if (!clashes.isEmpty()) {
+                System.err.println("⚠️ Journal booking " + booking.getBookingId() + " (" + booking.getCustomerName()
+                        + ", " + transport.getId() + " " + transport.getDate() + ") wants seat/s " + String.join(", ", clashes)
+                        + " of another booking, it is not restored");
+                bookings.remove();
+                continue;
+            }
+
+            for (Seat seat : booking.getBookedSeats()) {
+                seatsOfBookings.set(seat.getIndex());
+                if (!transport.claimSeat(seat.getIndex())) {
+                    takenOver++;
+                }
+            }
+        }
+        if (takenOver > 0) {
+            System.out.println("💺 " + takenOver + " seat/s of journal bookings were taken by the simulated occupancy,"
+                    + " the bookings got them");
+        }
+    }
+
+    // writes the booking; when this returns it is as durable as the Durability says
+    public void logBooking(Booking booking) throws IOException {
+        ByteBuffer record = newRecord(BOOK, bookFieldBytes(booking));
+        putBookFields(record, booking);
+        append(record);
+    }
+
+    // all legs of the group in one record: legs (short), then per leg its length (int) and a BOOK record body
+    public void logGroup(GroupBooking group) throws IOException {
+        List<Booking> legs = group.getBookings();
+        int fieldBytes = 2;
+        for (Booking leg : legs) {
+            fieldBytes += 4 + 1 + bookFieldBytes(leg);
+        }
+        ByteBuffer record = newRecord(GROUP, fieldBytes);
+        record.putShort((short) legs.size());
+        for (Booking leg : legs) {
+            record.putInt(1 + bookFieldBytes(leg));
+            record.put(BOOK);
+            putBookFields(record, leg);
+        }
+        append(record);
+    }
+
+    private static int bookFieldBytes(Booking booking) {
+        return 2 + bytes(booking.getBookingId()).length + 2 + bytes(booking.getTransport().getId()).length + 4
+                + 2 + bytes(booking.getCustomerName()).length + 4 + 1 + 8 + 2 + 4 * booking.getBookedSeats().size();
+    }
+
+    private static void putBookFields(ByteBuffer record, Booking booking) {
+        byte[] id = bytes(booking.getBookingId());
+        byte[] trip = bytes(booking.getTransport().getId());
+        byte[] customer = bytes(booking.getCustomerName());
+        List<Seat> seats = booking.getBookedSeats();
+
+        putString(record, id);
+        putString(record, trip);
+        record.putInt((int) booking.getTransport().getDate().toEpochDay());
+        putString(record, customer);
+        record.putInt(booking.getPassengerCount());
+        record.put((byte) (booking.isPremium() ? 1 : 0));
+        record.putLong(booking.getBookingTime().toEpochSecond(ZoneOffset.UTC));
+        record.putShort((short) seats.size());
+        for (Seat seat : seats) {
+            record.putInt(seat.getIndex());
+        }
+    }
+
+    public void logCancel(Booking booking) throws IOException {
+        byte[] id = bytes(booking.getBookingId());
+        ByteBuffer record = newRecord(CANCEL, 2 + id.length);
+        putString(record, id);
+        append(record);
+    }
+
+    // room for length, CRC and type, the caller adds the fields
+    private static ByteBuffer newRecord(byte type, int fieldBytes) {
+        ByteBuffer record = ByteBuffer.allocate(8 + 1 + fieldBytes);
+        record.position(8);
+        record.put(type);
+        return record;
+    }
+
+    private void append(ByteBuffer record) throws IOException {
+        if (!open) {
+            throw new IOException("Booking journal is closed");
+        }
+        int length = record.position() - 8;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+        record.flip();
+
+        long end;
+        boolean full;
+        synchronized (writeLock) {
+            long position = written - segmentStart;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            written += record.limit();
+            end = written;
+            full = written - segmentStart >= segmentBytes;
+            if (durability == Durability.SYNC) {
+                channel.force(false);
+                forced = end;
+            }
+        }
+        if (durability == Durability.GROUP) {
+            syncUpTo(end);
+        }
+        if (full) {
+            nextSegment();
+        }
+    }
+
+    // group commit: one force for everything written so far, whoever comes later may find its record forced already
+    private void syncUpTo(long end) throws IOException {
+        if (forced >= end) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (forced >= end) {
+                return;
+            }
+            long upTo;
+            FileChannel current;
+            synchronized (writeLock) {
+                upTo = written;
+                current = channel;
+            }
+            // the segment can't change while we hold syncLock
+            current.force(false);
+            forced = upTo;
+        }
+    }
+
+    // the full segment is finished (and on disk) and a new one is started, then compaction may take the old one
+    private void nextSegment() throws IOException {
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                if (!open || written - segmentStart < segmentBytes) {
+                    return;     // another thread was first
+                }
+                channel.force(true);
+                forced = written;
+                FileChannel next = openSegment(segment + 1);
+                channel.close();
+                channel = next;
+                segment++;
+                // positions in the file count from its start, header included
+                segmentStart = written - next.size();
+            }
+        }
+        LockSupport.unpark(compactor);
+    }
+
+    /**
+     * Folds all finished segments into a new snapshot and deletes them. Runs in the background
+     * by itself, public for tests and tools. false = nothing to do.
+     */
+    public boolean compact() throws IOException {
+        synchronized (compactLock) {
+            long active;
+            synchronized (writeLock) {
+                active = segment;
+            }
+            List<Long> finished = new ArrayList<>();
+            for (long number : numbered("journal-", ".log")) {
+                if (number < active) {
+                    finished.add(number);
+                }
+            }
+            if (finished.isEmpty()) {
+                return false;
+            }
+
+            // shadow state: booking id -> its BOOK record, only what is still alive
+            Map<String, byte[]> state = new LinkedHashMap<>();
+            RecordHandler fold = (type, data, from, to) -> {
+                if (type == BOOK) {
+                    state.put(getString(data), Arrays.copyOfRange(data.array(), from, to));
+                } else if (type == CANCEL) {
+                    state.remove(getString(data));
+                } else if (type == GROUP) {
+                    // the snapshot is written in one go, so the legs can be single BOOK records there
+                    int legs = data.getShort();
+                    for (int i = 0; i < legs; i++) {
+                        int length = data.getInt();
+                        int body = data.position();
+                        data.get();     // BOOK
+                        state.put(getString(data), Arrays.copyOfRange(data.array(), body, body + length));
+                        data.position(body + length);
+                    }
+                }
+            };
+            long first = readSnapshot(fold);
+            for (long number : finished) {
+                if (number >= first) {
+                    Path file = segmentFile(number);
+                    if (readRecords(file, HEADER_SIZE, fold) != Files.size(file)) {
+                        throw new IOException(file + " is damaged, it is not compacted");
+                    }
+                }
+            }
+
+            writeSnapshot(active, state.values());
+
+            // the new snapshot is on disk, everything it covers can go
+            for (long number : finished) {
+                Files.deleteIfExists(segmentFile(number));
+            }
+            for (long number : numbered("snapshot-", ".bin")) {
+                if (number < active) {
+                    Files.deleteIfExists(snapshotFile(number));
+                }
+            }
+            return true;
+        }
+    }
+
+    private void writeSnapshot(long nextSegment, Collection<byte[]> bookRecords) throws IOException {
+        Path file = snapshotFile(nextSegment);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(nextSegment);
+            out.writeInt(bookRecords.size());
+            CRC32 crc = new CRC32();
+            for (byte[] record : bookRecords) {
+                crc.reset();
+                crc.update(record);
+                out.writeInt(record.length);
+                out.writeInt((int) crc.getValue());
+                out.write(record);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // feeds the records of the newest snapshot to the handler, returns the first segment that is not in it
+    private long readSnapshot(RecordHandler handler) throws IOException {
+        List<Long> snapshots = numbered("snapshot-", ".bin");
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        Path file = snapshotFile(snapshots.get(snapshots.size() - 1));
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (header.limit() < SNAPSHOT_HEADER_SIZE || header.getInt(0) != SNAPSHOT_MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a booking snapshot (or from another version)");
+        }
+        long nextSegment = header.getLong(8);
+        int expected = header.getInt(16);
+
+        int[] count = new int[1];
+        long goodEnd = readRecords(header, SNAPSHOT_HEADER_SIZE, (type, data, from, to) -> {
+            handler.record(type, data, from, to);
+            count[0]++;
+        });
+        if (goodEnd != header.limit() || count[0] != expected) {
+            throw new IOException(file + " is damaged (" + count[0] + " of " + expected + " bookings readable)");
+        }
+        return nextSegment;
+    }
+
+    // what a record reader gets: the type, and data positioned after it; the record body is data[from, to)
+    private interface RecordHandler {
+        void record(byte type, ByteBuffer data, int from, int to) throws IOException;
+    }
+
+    private static long readRecords(Path file, int from, RecordHandler handler) throws IOException {
+        return readRecords(ByteBuffer.wrap(Files.readAllBytes(file)), from, handler);
+    }
+
+    // reads records until the end or the first broken one, returns where the last good record ends
+    private static long readRecords(ByteBuffer data, int from, RecordHandler handler) throws IOException {
+        data.position(from);
+        CRC32 crc = new CRC32();
+        long goodEnd = from;
+        while (data.remaining() >= 8) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length < 1 || length > data.remaining()) {
+                break;
+            }
+            int body = data.position();
+            crc.reset();
+            crc.update(data.array(), body, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            byte type = data.get();
+            handler.record(type, data, body, body + length);
+            data.position(body + length);
+            goodEnd = body + length;
+        }
+        return goodEnd;
+    }
+
+    private void flushLoop() {
+        while (open) {
+            LockSupport.parkNanos(ASYNC_FLUSH_MILLIS * 1_000_000L);
+            try {
+                long end;
+                synchronized (writeLock) {
+                    end = written;
+                }
+                if (open) {
+                    syncUpTo(end);
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ Could not flush the booking journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private void compactLoop() {
+        while (open) {
+            LockSupport.parkNanos(COMPACT_CHECK_MILLIS * 1_000_000L);
+            try {
+                if (open) {
+                    compact();
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ Could not compact the booking journal: " + e.getMessage());
+            }
+        }
+    }
+
+    // forces what is written and closes the file
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+        }
+        LockSupport.unpark(compactor);
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                channel.force(true);
+                forced = written;
+                channel.close();
+            }
+        }
+    }
+
+    // numbers of the files prefix-NNNNNN.suffix in the folder, sorted
+    private List<Long> numbered(String prefix, String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentFile(long number) {
+        return folder.resolve(String.format("journal-%06d.log", number));
+    }
+
+    private Path snapshotFile(long number) {
+        return folder.resolve(String.format("snapshot-%06d.bin", number));
+    }
+
+    private static byte[] bytes(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Text too long for the journal: " + text.substring(0, 20) + "...");
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        String text = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return text;
+    }
+
+    public Durability getDurability() { return durability; }
+    public Path getFolder() { return folder; }
+}
\ No newline at end of file
@@ -1,32 +1,56 @@
 package transport;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class BookingSystem {
 
-    private List<Transport> allTransports;
+    // volatile: a timetable reload swaps these while the menu is running (see applyReload)
+    private volatile List<Transport> allTransports;
     private List<Booking> bookings;
     private TripSearcher tripSearcher;
+    private volatile JourneyPlanner journeyPlanner;
+    private SearchEngine searchEngine;
+    private SeatHoldManager seatHolds;   // keeps chosen seats for the customer until they confirm
+    private BookingJournal journal;      // every booking/cancellation on disk, replayed at start
+    private TimetableWatcher watcher;    // puts edited transport files live, null if turned off
+    // a reload moves holds and bookings to the new trips while no hold is turning into a booking
+    private final Object reloadLock = new Object();
     private Scanner scanner;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    // most changes we offer when there is no direct trip
+    private static final int MAX_TRANSFERS = 2;
+    private static final String JOURNAL_FOLDER = "./bookings-journal";
 
-    //10 german cities to work with
-    private static final String[] GERMAN_CITIES = {
-            "Berlin", "Munich", "Hamburg", "Frankfurt", "Cologne",
-            "Stuttgart", "Düsseldorf", "Dortmund", "Essen", "Leipzig"
-    };
+    // cities to work with, taken from the loaded trips (see CityDictionary)
+    private volatile List<String> cities;
 
     public BookingSystem() {
-        this.bookings = new ArrayList<>();
+        // the watcher thread goes through the bookings on a reload
+        this.bookings = new CopyOnWriteArrayList<>();
         this.scanner = new Scanner(System.in);
 
         try {
             System.out.println("🚆 loading transport database..");
-            this.allTransports = DatabaseManager.loadTransports();
-            this.tripSearcher = new TripSearcher(allTransports);
+            // watched before the files are read, so a change while loading is not lost
+            this.watcher = DatabaseManager.watch();
+            Timetable timetable = DatabaseManager.loadTimetable();
+            this.allTransports = timetable.getTrips();
+            this.journal = new BookingJournal(Paths.get(JOURNAL_FOLDER));
+            this.bookings.addAll(journal.replay(allTransports));
+            this.searchEngine = SearchEngine.defaultEngine();
+            this.tripSearcher = new TripSearcher(allTransports, searchEngine);
+            this.journeyPlanner = new JourneyPlanner(allTransports);
+            this.seatHolds = new SeatHoldManager();
+            this.cities = CityDictionary.global().sortedNames();
+            if (watcher != null) {
+                watcher.start(timetable, this::applyReload);
+            }
             System.out.println("✅ Loaded " + allTransports.size() + " trips successfully!\n");
         } catch (Exception e) {
             System.err.println("❌ Error loading database: " + e.getMessage());
@@ -38,7 +62,7 @@ public class BookingSystem {
         System.out.println("═══════════════════════════════════════════════════════════");
         System.out.println("          GERMAN TRANSPORT BOOKING SYSTEM                  ");
         System.out.println("═══════════════════════════════════════════════════════════");
-        System.out.println("  Connecting 10 major German cities with train, bus, & flight");
+        System.out.printf("  Connecting %d major German cities with train, bus, & flight\n", cities.size());
         System.out.println("═══════════════════════════════════════════════════════════\n");
 
         boolean running = true;
@@ -71,6 +95,41 @@ public class BookingSystem {
         }
 
         scanner.close();
+        tripSearcher.shutdown();
+        searchEngine.shutdown();
+        seatHolds.shutdown();
+        try {
+            if (watcher != null) {
+                watcher.close();
+            }
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not close the booking journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called by the TimetableWatcher (on its own thread) with the new trips. The new planner and
+     * index are built first and then swapped in, a search that is running keeps the old ones.
+     * Holds and bookings on a changed trip move to its new version (the seats are shared already).
+     */
+    private void applyReload(TimetableWatcher.Reload reload) {
+        List<Transport> updated = reload.getTransports();
+        JourneyPlanner planner = new JourneyPlanner(updated);
+        tripSearcher.reload(updated);
+        this.journeyPlanner = planner;
+        this.allTransports = updated;
+        this.cities = CityDictionary.global().sortedNames();
+
+        synchronized (reloadLock) {
+            seatHolds.moveHolds(reload.getReplaced());
+            for (Booking booking : bookings) {
+                Transport moved = reload.getReplaced().get(booking.getTransport());
+                if (moved != null) {
+                    booking.moveTo(moved);
+                }
+            }
+        }
     }
 
     private void showMenu() {
@@ -89,24 +148,26 @@ public class BookingSystem {
         System.out.println("                  🔍 SEARCH FOR TRIPS");
         System.out.println("═══════════════════════════════════════════════════════════");
 
-        // Show available cities
+        // Show available cities (same list for the whole search, even if a reload adds cities)
+        List<String> cities = this.cities;
         System.out.println("\n📍 Available Cities:");
-        for (int i = 0; i < GERMAN_CITIES.length; i++) {
-            System.out.printf("   %2d. %s\n", i + 1, GERMAN_CITIES[i]);
+        for (int i = 0; i < cities.size(); i++) {
+            System.out.printf("   %2d. %s\n", i + 1, cities.get(i));
         }
+        int cityCount = cities.size();
 
         //get departure city
         System.out.println();
-        int depChoice = getIntInput("Select departure city (1-10): (Berlin Recommended) ", 1, 10);
-        String departure = GERMAN_CITIES[depChoice - 1];
+        int depChoice = getIntInput("Select departure city (1-" + cityCount + "): (Berlin Recommended) ", 1, cityCount);
+        String departure = cities.get(depChoice - 1);
 
         //get arrival city
-        int arrChoice = getIntInput("Select arrival city (1-10): (Munich Recommended) ", 1, 10);
+        int arrChoice = getIntInput("Select arrival city (1-" + cityCount + "): (Munich Recommended) ", 1, cityCount);
         while (arrChoice == depChoice) {
             System.out.println("⚠️  Arrival city must be different from departure city!");
-            arrChoice = getIntInput("Select arrival city (1-10): ", 1, 10);
+            arrChoice = getIntInput("Select arrival city (1-" + cityCount + "): ", 1, cityCount);
         }
-        String arrival = GERMAN_CITIES[arrChoice - 1];
+        String arrival = cities.get(arrChoice - 1);
 
         // Get date
         System.out.println("\n📅 Enter travel date (format:eg 2025-12-21)/ recommended:");
@@ -121,7 +182,34 @@ public class BookingSystem {
 
         //Search trips (with multithreading)
         System.out.println("\n🔍 Searching for trips from " + departure + " to " + arrival + " on " + date + "...");
-        List<Transport> results = tripSearcher.searchTrips(departure, arrival, date);
+        List<Transport> results;
+        try {
+            results = tripSearcher.searchTrips(departure, arrival, date);
+        } catch (NoTripsFoundException e) {
+            // no direct trip, maybe it works with a change somewhere
+            List<JourneyPlanner.Itinerary> journeys = journeyPlanner.findJourneys(departure, arrival, date, MAX_TRANSFERS);
+            if (journeys.isEmpty()) {
+                throw e;
+            }
+            if (!offerJourneys(journeys, "No direct trips, but these connections with a change work:", "go back")) {
+                System.out.println("💡 You can also book every leg on its own with \"Search & Book Trip\".\n");
+            }
+            return;
+        }
+
+        // direct trips only on other days, a connection with a change on the day itself may suit better
+        if (results.stream().noneMatch(t -> t.getDate().equals(date))) {
+            List<JourneyPlanner.Itinerary> journeys = new ArrayList<>();
+            for (JourneyPlanner.Itinerary journey : journeyPlanner.findJourneys(departure, arrival, date, MAX_TRANSFERS)) {
+                if (journey.getDepartureDateTime().toLocalDate().equals(date)) {
+                    journeys.add(journey);
+                }
+            }
+            if (!journeys.isEmpty() && offerJourneys(journeys, "No direct trip on " + date
+                    + ", but these connections with a change go that day:", "see the direct trips on other days")) {
+                return;
+            }
+        }
 
         if (results.isEmpty()) {
             System.out.println("\n⚠️  No trips found for this route and date.\n");
@@ -198,21 +286,24 @@ public class BookingSystem {
 
         int seatChoice = getIntInput("Your choice (1-2): ", 1, 2);
 
-        List<Seat> allocatedSeats;
+        // the seats are held for the customer from here on until they confirm (or the hold runs out)
+        SeatHold hold;
         boolean paidForReservation = false;
 
         if (seatChoice == 1) {
             paidForReservation = true;
             //Users choose seats manually
-            allocatedSeats = manualSeatSelection(selectedTrip, passengerCount, isPremium);
+            hold = manualSeatSelection(selectedTrip, passengerCount, isPremium, passengerName);
         } else {
             //Auto Assign seats
-            allocatedSeats = SeatAllocator.allocateSeats(selectedTrip, passengerCount, isPremium);
+            hold = seatHolds.hold(selectedTrip,
+                    SeatAllocator.allocateSeats(selectedTrip, passengerCount, isPremium), passengerName);
             System.out.println("\n✅ Auto-assigned seats: ");
-            for (Seat seat : allocatedSeats) {
+            for (Seat seat : hold.getSeats()) {
                 System.out.println("   • " + seat.getSeatNumber() + " (" + seat.getPosition() + ", Row " + seat.getRow() + ")");
             }
         }
+        List<Seat> allocatedSeats = hold.getSeats();
 
         // Calc total price with fees
         double basePrice = selectedTrip.getPrice(isPremium) * passengerCount;
@@ -256,19 +347,32 @@ public class BookingSystem {
 
         System.out.printf("║  Total Price:  €%-41.2f ║\n", totalPrice);
         System.out.println("╚═══════════════════════════════════════════════════════════╝");
+        System.out.printf("⏳ Your seats are held for %d minutes.\n", hold.getRemaining().toMinutes() + 1);
 
         // Confirmation prompt
         System.out.print("\n❓ Confirm booking? (yes/no): ");
         String confirmation = scanner.nextLine().trim().toLowerCase();
 
         if (!confirmation.equals("yes") && !confirmation.equals("y")) {
+            seatHolds.release(hold);
             System.out.println("\n❌ Booking cancelled.\n");
             return;
         }
 
-        // Create booking
-        Booking booking = new Booking(selectedTrip, allocatedSeats, passengerCount, passengerName, isPremium);
-        bookings.add(booking);
+        // Create booking (fails if the hold ran out in the meantime). Until it is in the list
+        // a reload could neither move the hold nor the booking, so it waits
+        Booking booking;
+        synchronized (reloadLock) {
+            booking = seatHolds.confirm(hold, passengerCount, passengerName, isPremium);
+            try {
+                journal.logBooking(booking);
+            } catch (IOException e) {
+                // not saved = not booked, otherwise it would be gone after a restart
+                booking.cancel();
+                throw new BookingException("Could not save the booking, please try again (" + e.getMessage() + ")");
+            }
+            bookings.add(booking);
+        }
 
         // Show confirmation
         System.out.println("\n✅ BOOKING CONFIRMED!\n");
@@ -277,10 +381,72 @@ public class BookingSystem {
     }
 
 
-    private List<Seat> manualSeatSelection(Transport transport, int count, boolean premium)
-            throws InvalidInputException {
+    // shows journeys with changes when there is no direct trip that day, one of them can be booked
+    // as a whole. true if one was booked, false if the customer chose 0 (`back` says what 0 does)
+    private boolean offerJourneys(List<JourneyPlanner.Itinerary> journeys, String heading, String back)
+            throws BookingException {
+        System.out.println("\n🔀 " + heading + "\n");
+        System.out.println("═══════════════════════════════════════════════════════════");
+        for (int i = 0; i < journeys.size(); i++) {
+            System.out.printf("%2d. %s\n", i + 1, journeys.get(i));
+            System.out.println("-----------------------------------------------------------");
+        }
+
+        int choice = getIntInput("\nBook a whole journey? Select number (or 0 to " + back + "): ", 0, journeys.size());
+        if (choice == 0) {
+            return false;
+        }
+        bookJourney(journeys.get(choice - 1));
+        return true;
+    }
+
+    // every leg of the journey or none (GroupBooking), seats are assigned automatically
+    private void bookJourney(JourneyPlanner.Itinerary journey) throws BookingException {
+        int passengerCount = getIntInput("\nNumber of passengers (1-10): ", 1, 10);
+
+        System.out.println("\n🎫 Select class (for all legs):");
+        System.out.println("  1. Standard/2nd Class (€" + String.format("%.2f", journey.getTotalPrice(false)) + " per person!)");
+        System.out.println("  2. Premium/1st Class (€" + String.format("%.2f", journey.getTotalPrice(true)) + " per person!)");
+        boolean isPremium = getIntInput("Your choice? (1-2): ", 1, 2) == 2;
+
+        System.out.print("\n👤 Enter Client name: ");
+        String passengerName = scanner.nextLine().trim();
+        if (passengerName.isEmpty()) {
+            throw new InvalidInputException("Client name cannot be empty.");
+        }
+
+        System.out.printf("\n❓ Book all %d legs for €%.2f? (yes/no): ", journey.getLegs().size(),
+                journey.getTotalPrice(isPremium) * passengerCount);
+        String confirmation = scanner.nextLine().trim().toLowerCase();
+        if (!confirmation.equals("yes") && !confirmation.equals("y")) {
+            System.out.println("\n❌ Booking cancelled.\n");
+            return;
+        }
+
+        List<GroupBooking.Leg> legs = new ArrayList<>();
+        for (Transport leg : journey.getLegs()) {
+            legs.add(new GroupBooking.Leg(leg, passengerCount, isPremium));
+        }
+        GroupBooking group = GroupBooking.book(legs, passengerName);
+        try {
+            journal.logGroup(group);
+        } catch (IOException e) {
+            // not saved = not booked, same as a single booking
+            group.cancel();
+            throw new BookingException("Could not save the booking, please try again (" + e.getMessage() + ")");
+        }
+        bookings.addAll(group.getBookings());
+
+        System.out.println("\n✅ JOURNEY BOOKED!\n");
+        System.out.println(group);
+    }
+
+    // every chosen seat goes on hold right away, so nobody can take it while the others are picked
+    private SeatHold manualSeatSelection(Transport transport, int count, boolean premium, String customerName)
+            throws BookedSeatsException {
 
         List<Seat> selectedSeats = new ArrayList<>();
+        SeatHold hold = null;
 
         System.out.println("\n💺 Manual Seat Selection");
         System.out.println("═══════════════════════════════════════════════════════════");
@@ -327,18 +493,27 @@ public class BookingSystem {
                 continue;
             }
 
-            //marked seat is displayed
-            chosenSeat.bookSeat();
+            //marked seat is displayed (held for us now)
+            try {
+                if (hold == null) {
+                    hold = seatHolds.hold(transport, List.of(chosenSeat), customerName);
+                } else {
+                    seatHolds.addSeat(hold, chosenSeat);
+                }
+            } catch (BookedSeatsException e) {
+                if (hold != null && !hold.isActive()) {
+                    // the hold ran out while choosing, start over
+                    throw e;
+                }
+                System.out.println("❌ " + e.getMessage());
+                i--;
+                continue;
+            }
             selectedSeats.add(chosenSeat);
             System.out.println("✅ Seat " + seatInput + " selected!\n");
         }
 
-        //release temporarily (Booking constructor will reserve them again)
-        for (Seat seat : selectedSeats) {
-            seat.release();
-        }
-
-        return selectedSeats;
+        return hold;
     }
 
     private void viewBookings() {
@@ -383,6 +558,11 @@ public class BookingSystem {
         }
 
         Booking booking = bookings.get(choice - 1);
+        try {
+            journal.logCancel(booking);
+        } catch (IOException e) {
+            throw new BookingException("Could not cancel the booking, please try again (" + e.getMessage() + ")");
+        }
         booking.cancel(); // Release seats
         bookings.remove(choice - 1);
 
@@ -5,40 +5,47 @@ import java.time.LocalTime;
 
 public class Bus extends Transport {
 
+    // every bus has the same seats so they all share one layout
+    private static final SeatLayout LAYOUT = buildLayout();
+
     // I gave buses 50 seats (minimum standard for travel)
     public Bus(String id, String departure, String arrival,
                LocalDate date, LocalTime departureTime, LocalTime arrivalTime,
                double standardPrice, double premiumPrice, String company) {
         super(id, "BUS", departure, arrival, date, departureTime, arrivalTime,
-                standardPrice, premiumPrice, company, 50);
+                standardPrice, premiumPrice, company, LAYOUT);
     }
 
     //to initialise all bus seats
-    @Override
-    protected void initializeSeats() {
+    private static SeatLayout buildLayout() {
+        // seat letters of a row from left to right, | is where the aisle is
+        SeatLayout.Builder layout = new SeatLayout.Builder("BUS", "AB|CD");
+
         //bus has 50 seats, 4 per row
 
         // Premium section/1st class for rows 1-3: 12 seats
         for (int r = 1; r <= 3; r++) {
-            seats.add(new Seat(r + "A", "WINDOW", r, true, "EXCELLENT"));
-            seats.add(new Seat(r + "B", "AISLE", r, true, "EXCELLENT"));
+            layout.seat(r, "A", "WINDOW", true, "EXCELLENT");
+            layout.seat(r, "B", "AISLE", true, "EXCELLENT");
             //aisle
-            seats.add(new Seat(r + "C", "AISLE", r, true, "EXCELLENT"));
-            seats.add(new Seat(r + "D", "WINDOW", r, true, "EXCELLENT"));
+            layout.seat(r, "C", "AISLE", true, "EXCELLENT");
+            layout.seat(r, "D", "WINDOW", true, "EXCELLENT");
         }
 
         // Standard section/2nd class (Rows 4-12): 36 seats
         for (int row = 4; row <= 12; row++) {
-            seats.add(new Seat(row + "A", "WINDOW", row, false, "AVERAGE"));
-            seats.add(new Seat(row + "B", "AISLE", row, false, "AVERAGE"));
+            layout.seat(row, "A", "WINDOW", false, "AVERAGE");
+            layout.seat(row, "B", "AISLE", false, "AVERAGE");
             //aisle
-            seats.add(new Seat(row + "C", "AISLE", row, false, "AVERAGE"));
-            seats.add(new Seat(row + "D", "WINDOW", row, false, "AVERAGE"));
+            layout.seat(row, "C", "AISLE", false, "AVERAGE");
+            layout.seat(row, "D", "WINDOW", false, "AVERAGE");
         }
 
         // Last row near toilet (Row 13): 2 seats - worst
-        seats.add(new Seat("13A", "WINDOW", 13, false, "POOR"));
-        seats.add(new Seat("13D", "WINDOW", 13, false, "POOR"));
+        layout.seat(13, "A", "WINDOW", false, "POOR");
+        layout.seat(13, "D", "WINDOW", false, "POOR");
+
+        return layout.build();
     }
 
     @Override
@@ -0,0 +1,87 @@
+package transport;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every city a small int id (0, 1, 2, ...) the first time it is seen, so
+ * searches compare ints instead of calling equalsIgnoreCase on city names.
+ * Lookups ignore case: "berlin" and "Berlin" are the same city, the spelling seen
+ * first is the one that is displayed.
+ */
+public class CityDictionary {
+
+    public static final int UNKNOWN = -1;
+
+    private static final CityDictionary GLOBAL = new CityDictionary();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private volatile int size;
+
+    // the dictionary all transports use
+    public static CityDictionary global() {
+        return GLOBAL;
+    }
+
+    // id of the city, a new one if we never saw it before
+    public int intern(String city) {
+        Integer id = ids.get(fold(city));
+        if (id != null) {
+            return id;
+        }
+        return add(city);
+    }
+
+    private synchronized int add(String city) {
+        String key = fold(city);
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        int newId = size;
+        names[newId] = city.trim();
+        size = newId + 1;
+        // name and size have to be in place before other threads can find the id
+        ids.put(key, newId);
+        return newId;
+    }
+
+    // id of the city or UNKNOWN, never adds anything
+    public int lookup(String city) {
+        Integer id = ids.get(fold(city));
+        return id == null ? UNKNOWN : id;
+    }
+
+    public String name(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown city id: " + id);
+        }
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // all city names in alphabetical order (for the menu)
+    public List<String> sortedNames() {
+        int count = size;
+        List<String> sorted = new ArrayList<>(Arrays.asList(names).subList(0, count));
+        sorted.sort(String.CASE_INSENSITIVE_ORDER);
+        return sorted;
+    }
+
+    // departure and arrival packed into one long, used as the key of a route
+    public static long routeKey(int departureId, int arrivalId) {
+        return ((long) departureId << 32) | (arrivalId & 0xFFFFFFFFL);
+    }
+
+    private static String fold(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+}
\ No newline at end of file
@@ -1,20 +1,45 @@
 package transport;
 
 import java.io.*;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads all trips from the files in the transport files folder (and its subfolders).
+ *
+ * Loading runs in parallel with fork/join: every folder forks a task per subfolder and file,
+ * and big files are cut into line ranges that are parsed in parallel too. Once all files are read
+ * every line has a slot in one shared array (the files one after the other in folder order) and
+ * the parser puts each trip straight into the slot of its line, there are no lists per file that
+ * get merged afterwards. Then the empty slots (comments, broken lines) are closed up in place, so
+ * every load has the same order and the Timetable knows which file every trip came from.
+ * Files are read as UTF-8 bytes (city names like Düsseldorf) and parsed by TripLineParser.
+ * The OccupancySimulator then takes some seats of every trip (or none, see -Dtransport.occupancy).
+ *
+ * After a text load everything is saved as a TimetableSnapshot. The next start opens that
+ * instead, as long as none of the files changed. -Dtransport.snapshot=false turns this off.
+ * While the program runs, changed files are picked up by a TimetableWatcher (see watch()).
+ */
 public class DatabaseManager {
 
     // load all files in the transport files
     private static final String TRANSPORT_FOLDER = "./transport files";
 
-    public static List<Transport> loadTransports() throws IOException {
-        List<Transport> transports = new ArrayList<>();
+    // files with more lines than this are parsed in parallel pieces
+    private static final int LINES_PER_TASK = 2048;
+
+    // binary copy of the last load, next to the transport files folder
+    private static final String SNAPSHOT_FILE = "./transport-snapshot.bin";
+    private static final boolean USE_SNAPSHOT = !"false".equals(System.getProperty("transport.snapshot"));
 
+    public static Timetable loadTimetable() throws IOException {
         File folder = new File(TRANSPORT_FOLDER);
 
         if (!folder.exists() || !folder.isDirectory()) {
@@ -23,158 +48,382 @@ public class DatabaseManager {
                     "and add your transport data files (.txt or .csv) inside it.");
         }
 
+        OccupancySimulator occupancy = OccupancySimulator.fromSystemProperties();
+        if (!USE_SNAPSHOT) {
+            return loadFromText(folder, occupancy);
+        }
+
+        Path snapshot = Paths.get(SNAPSHOT_FILE);
+        TimetableSnapshot.SourceStamp stamp = sourceStamp(folder, occupancy);
+        long start = System.nanoTime();
+        Timetable timetable = null;
+        try {
+            timetable = TimetableSnapshot.open(snapshot, stamp);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not read " + SNAPSHOT_FILE + " (" + e.getMessage() + "), reading the text files instead");
+        }
+        if (timetable != null && !timetable.getTrips().isEmpty()) {
+            System.out.printf("⚡ Opened snapshot %s in %.0f ms, files unchanged since last time%n",
+                    SNAPSHOT_FILE, (System.nanoTime() - start) / 1e6);
+            printLoaded(timetable.getTrips().size(), occupancy);
+            return timetable;
+        }
+
+        timetable = loadFromText(folder, occupancy);
+        try {
+            TimetableSnapshot.write(snapshot, timetable, stamp);
+        } catch (IOException e) {
+            // not worse than before, the next start just reads the text files again
+            System.err.println("⚠️ Could not save " + SNAPSHOT_FILE + ": " + e.getMessage());
+        }
+        return timetable;
+    }
+
+    private static Timetable loadFromText(File folder, OccupancySimulator occupancy) throws IOException {
         System.out.println("📁 Loading transport data from: " + TRANSPORT_FOLDER + "/");
-        transports.addAll(loadFromFolder(folder, 0));
+        long start = System.nanoTime();
+        Loader loader = new Loader(occupancy);
+        Entry root = loadFromFolder(folder, loader);
+        Timetable timetable = closeGaps(folder, root, loader.slots);
+        double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+
+        root.print(0);
+        List<Transport> transports = timetable.getTrips();
 
         if (transports.isEmpty()) {
             throw new IOException("No valid transport data found in '" + TRANSPORT_FOLDER + "/' folder!");
         }
 
-        System.out.println("✅ Loaded " + transports.size() + " transports and preoccupied seats to simulate real booking experience.\n");
-        return transports;
+        System.out.printf("⚡ Read %d lines in %.0f ms (%.0f lines/s, %.0f trips/s)%n", loader.lines.get(),
+                seconds * 1000, loader.lines.get() / seconds, transports.size() / seconds);
+        printLoaded(transports.size(), occupancy);
+        return timetable;
     }
 
-    private static List<Transport> loadFromFolder(File folder, int depth) throws IOException {
-        List<Transport> transports = new ArrayList<>();
-
-        File[] files = folder.listFiles();
-        if (files == null) {
-            return transports;
+    private static void printLoaded(int count, OccupancySimulator occupancy) {
+        if (occupancy.getMode() == OccupancySimulator.Mode.NONE) {
+            System.out.println("✅ Loaded " + count + " transports.\n");
+        } else {
+            System.out.println("✅ Loaded " + count + " transports and preoccupied seats to simulate real booking experience.\n");
         }
+    }
 
-        String indent = "  ".repeat(depth + 1);
+    // newest change time, number and total size of the data files, a changed file changes at least one of them
+    // (plus the simulated occupancy settings, the snapshot keeps the taken seats)
+    private static TimetableSnapshot.SourceStamp sourceStamp(File folder, OccupancySimulator occupancy) {
+        long newest = 0;
+        int count = 0;
+        long bytes = 0;
+        Deque<File> folders = new ArrayDeque<>();
+        folders.push(folder);
+        while (!folders.isEmpty()) {
+            File[] files = folders.pop().listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    folders.push(file);
+                } else if (isDataFile(file)) {
+                    newest = Math.max(newest, file.lastModified());
+                    count++;
+                    bytes += file.length();
+                }
+            }
+        }
+        return new TimetableSnapshot.SourceStamp(newest, count, bytes, occupancy.getSettings().hashCode());
+    }
 
-        for (File file : files) {
-            // If it's a folder, recursively load from it
-            if (file.isDirectory()) {
-                System.out.println(indent + "📂 " + file.getName() + "/");
-                transports.addAll(loadFromFolder(file, depth + 1));
+    // loads the whole folder tree with fork/join, the returned tree says what came from where
+    private static Entry loadFromFolder(File folder, Loader loader) throws IOException {
+        Entry root = new Entry(folder, true);
+        try {
+            // read every file and find where its lines start
+            ForkJoinPool.commonPool().invoke(new FolderTask(root, loader));
+
+            // one slot per line, the files one after the other in listing order
+            List<Entry> files = new ArrayList<>();
+            root.dataFiles(files);
+            long lines = 0;
+            for (Entry file : files) {
+                file.firstSlot = (int) lines;
+                lines += file.lineCount();
+                if (lines > Integer.MAX_VALUE - 8) {
+                    throw new IOException("Too many lines to load at once (" + lines + "+)");
+                }
             }
-            // If it's a .txt or .csv file, load it
-            else if (file.isFile() && (file.getName().endsWith(".txt") || file.getName().endsWith(".csv"))) {
-                System.out.println(indent + "📄 " + file.getName());
-                transports.addAll(loadFromFile(file));
+            loader.slots = new Transport[(int) lines];
+
+            // parse all files in parallel, every trip goes straight into the slot of its line
+            List<LinesTask> tasks = new ArrayList<>(files.size());
+            for (Entry file : files) {
+                tasks.add(new LinesTask(file, 0, file.lineCount(), loader));
             }
-            // Ignore other file types
+            ForkJoinTask.invokeAll(tasks);
+        } catch (UncheckedIOException e) {
+            throw new IOException("Could not read the transport data: " + e.getMessage(), e);
         }
+        return root;
+    }
 
-        return transports;
+    // moves the trips together in place (comments, headers and broken lines left their slot empty),
+    // file by file in listing order, so the trips of every file end up as one range of the list
+    private static Timetable closeGaps(File folder, Entry root, Transport[] slots) {
+        List<Entry> files = new ArrayList<>();
+        root.dataFiles(files);
+        List<Path> paths = new ArrayList<>(files.size());
+        int[] ends = new int[files.size()];
+        int count = 0;
+        for (int f = 0; f < files.size(); f++) {
+            Entry file = files.get(f);
+            int end = file.firstSlot + file.lineCount();
+            for (int slot = file.firstSlot; slot < end; slot++) {
+                if (slots[slot] != null) {
+                    slots[count++] = slots[slot];
+                }
+            }
+            paths.add(folder.toPath().relativize(file.file.toPath()));
+            ends[f] = count;
+            // the text is not needed anymore
+            file.data = null;
+            file.lineStarts = null;
+        }
+        Arrays.fill(slots, count, slots.length, null);
+        return new Timetable(Arrays.asList(slots).subList(0, count), paths, ends);
     }
 
+    // everything the tasks share: the occupancy, the slots for the trips and the counter for the speed report
+    private static final class Loader {
+        final AtomicLong lines = new AtomicLong();
+        final OccupancySimulator occupancy;
+        Transport[] slots;    // set once all files are read, before the parsing starts
 
-    private static List<Transport> loadFromFile(File file) throws IOException {
-        List<Transport> transports = new ArrayList<>();
+        Loader(OccupancySimulator occupancy) {
+            this.occupancy = occupancy;
+        }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            int lineNumber = 0;
-            int loadedFromFile = 0;
+    // a folder or data file, kept in listing order so the report looks the same every time
+    private static final class Entry {
+        final File file;
+        final boolean folder;
+        final List<Entry> children = new ArrayList<>();
+        final AtomicInteger loaded = new AtomicInteger();
+        // data files only: the text until it is parsed, and where its lines go in the slots
+        byte[] data;
+        int[] lineStarts;
+        int firstSlot;
+
+        Entry(File file, boolean folder) {
+            this.file = file;
+            this.folder = folder;
+        }
 
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                line = line.trim();
+        // the last line start is just the end of the file
+        int lineCount() {
+            return lineStarts.length - 1;
+        }
 
-                // Skip empty lines
-                if (line.isEmpty()) {
-                    continue;
+        void print(int depth) {
+            String indent = "  ".repeat(depth + 1);
+            for (Entry child : children) {
+                if (child.folder) {
+                    System.out.println(indent + "📂 " + child.file.getName() + "/");
+                    child.print(depth + 1);
+                } else {
+                    System.out.println(indent + "📄 " + child.file.getName());
+                    if (child.loaded.get() > 0) {
+                        System.out.println(indent + "     Loaded " + child.loaded.get() + " transport/s");
+                    }
                 }
+            }
+        }
 
-                // Skip comment lines (starting with #)
-                if (line.startsWith("#")) {
-                    continue;
+        // the data files in and below this folder in listing order
+        void dataFiles(List<Entry> files) {
+            for (Entry child : children) {
+                if (child.folder) {
+                    child.dataFiles(files);
+                } else {
+                    files.add(child);
                 }
+            }
+        }
+    }
 
-                // Skip header/decorative lines
-                if (line.startsWith("Format:") ||
-                        line.startsWith("Dates:") ||
-                        line.startsWith("Cities:") ||
-                        line.startsWith("Company:") ||
-                        line.startsWith("Routes:") ||
-                        line.startsWith("TOTAL:") ||
-                        line.startsWith("Covers") ||
-                        line.startsWith("Mix of") ||
-                        line.startsWith("Realistic") ||
-                        line.startsWith("Some dates") ||
-                        line.contains("==========")) {
-                    continue;
-                }
+    // one folder: a task for every subfolder and .txt/.csv file in it, all run in parallel
+    private static final class FolderTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
 
-                // Skip lines that don't start with valid transport types
-                if (!line.startsWith("TRAIN") &&
-                        !line.startsWith("BUS") &&
-                        !line.startsWith("FLIGHT")) {
-                    continue;
-                }
+        private final Entry folder;
+        private final Loader loader;
 
-                try {
-                    Transport transport = parseLine(line);
-                    randomlyOccupySeats(transport);
-                    transports.add(transport);
-                    loadedFromFile++;
-                } catch (Exception e) {
-                    System.err.println("      ⚠️error on line " + lineNumber + ": " + e.getMessage());
+        FolderTask(Entry folder, Loader loader) {
+            this.folder = folder;
+            this.loader = loader;
+        }
+
+        @Override
+        protected void compute() {
+            File[] files = folder.file.listFiles();
+            if (files == null) {
+                return;
+            }
+            Arrays.sort(files);
+
+            List<RecursiveAction> tasks = new ArrayList<>();
+            for (File file : files) {
+                // If it's a folder, load from it as well
+                if (file.isDirectory()) {
+                    Entry child = new Entry(file, true);
+                    folder.children.add(child);
+                    tasks.add(new FolderTask(child, loader));
                 }
+                // If it's a .txt or .csv file, load it
+                else if (isDataFile(file)) {
+                    Entry child = new Entry(file, false);
+                    folder.children.add(child);
+                    tasks.add(new FileTask(child, loader));
+                }
+                // Ignore other file types
             }
+            invokeAll(tasks);
+        }
+    }
+
+    // one file: read as UTF-8 bytes and cut into lines, parsed later (in line ranges if it is big)
+    private static final class FileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Entry file;
+        private final Loader loader;
+
+        FileTask(Entry file, Loader loader) {
+            this.file = file;
+            this.loader = loader;
+        }
 
-            if (loadedFromFile > 0) {
-                System.out.println("       Loaded " + loadedFromFile + " transport/s");
+        @Override
+        protected void compute() {
+            try {
+                file.data = Files.readAllBytes(file.file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+            file.lineStarts = lineStarts(file.data);
+            loader.lines.addAndGet(file.lineCount());
         }
+    }
 
-        return transports;
+    // where every line starts (skipping a UTF-8 byte order mark), plus the end of the data at the end
+    private static int[] lineStarts(byte[] data) {
+        int start = (data.length >= 3 && data[0] == (byte) 0xEF && data[1] == (byte) 0xBB && data[2] == (byte) 0xBF) ? 3 : 0;
+        int[] starts = new int[64];
+        int count = 0;
+        starts[count++] = start;
+        for (int i = start; i < data.length; i++) {
+            if (data[i] == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        if (starts[count - 1] != data.length) {
+            // last line without a line break
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count + 1);
+            }
+            starts[count++] = data.length + 1;
+        }
+        return Arrays.copyOf(starts, count);
     }
 
-    private static Transport parseLine(String line) {
-        String[] parts = line.split(",");
+    // lines from..to-1 of a file, cut in half until the pieces are small enough
+    private static final class LinesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Entry file;
+        private final int from;
+        private final int to;
+        private final Loader loader;
 
-        if (parts.length != 10) {
-            throw new IllegalArgumentException("Expected 10 fields, got " + parts.length);
+        LinesTask(Entry file, int from, int to, Loader loader) {
+            this.file = file;
+            this.from = from;
+            this.to = to;
+            this.loader = loader;
         }
 
-        String type = parts[0].trim();
-        String id = parts[1].trim();
-        String departure = parts[2].trim();
-        String arrival = parts[3].trim();
-        LocalDate date = LocalDate.parse(parts[4].trim());
-        LocalTime departureTime = LocalTime.parse(parts[5].trim());
-        LocalTime arrivalTime = LocalTime.parse(parts[6].trim());
-        double standardPrice = Double.parseDouble(parts[7].trim());
-        double premiumPrice = Double.parseDouble(parts[8].trim());
-        String extraInfo = parts[9].trim();
+        @Override
+        protected void compute() {
+            if (to - from > LINES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LinesTask(file, from, middle, loader), new LinesTask(file, middle, to, loader));
+                return;
+            }
 
-        // Create appropriate transport object based on type
-        switch (type.toUpperCase()) {
-            case "TRAIN":
-                return new Train(id, departure, arrival, date, departureTime, arrivalTime,
-                        standardPrice, premiumPrice, extraInfo);
-            case "BUS":
-                return new Bus(id, departure, arrival, date, departureTime, arrivalTime,
-                        standardPrice, premiumPrice, extraInfo);
-            case "FLIGHT":
-                return new Flight(id, departure, arrival, date, departureTime, arrivalTime,
-                        standardPrice, premiumPrice, extraInfo);
-            default:
-                throw new IllegalArgumentException("Unknown transport type: " + type);
+            int loaded = parseLines(file.file, file.data, file.lineStarts, from, to, loader.occupancy,
+                    loader.slots, file.firstSlot);
+            file.loaded.addAndGet(loaded);
         }
     }
 
+    // the trip on line i goes into slots[firstSlot + i], other lines leave their slot empty
+    // (broken lines are reported and skipped)
+    private static int parseLines(File file, byte[] data, int[] lineStarts, int from, int to,
+                                  OccupancySimulator occupancy, Transport[] slots, int firstSlot) {
+        TripLineParser parser = new TripLineParser();
+        int loaded = 0;
+        for (int i = from; i < to; i++) {
+            // without the line break
+            int lineEnd = lineStarts[i + 1] - 1;
+            try {
+                // comments, headers and empty lines are no trips
+                if (!parser.parse(data, lineStarts[i], lineEnd)) {
+                    continue;
+                }
+                Transport transport = parser.toTransport();
+                occupancy.occupy(transport);
+                slots[firstSlot + i] = transport;
+                loaded++;
+            } catch (Exception e) {
+                System.err.println("      ⚠️error in " + file.getName() + " on line " + (i + 1) + ", " + e.getMessage());
+            }
+        }
+        return loaded;
+    }
+
     /**
-     * Randomly occupy 20-40% of seats to simulate a real booking system
+     * The trips of one file, all seats free (used by the TimetableWatcher for changed files).
      */
-    private static void randomlyOccupySeats(Transport transport) {
-        Random random = new Random();
-        List<Seat> seats = transport.getSeats();
-
-        double occupationRate = 0.20 + (random.nextDouble() * 0.20); // 20%-40%
-        int seatsToOccupy = (int) (seats.size() * occupationRate);
-
-        List<Integer> occupiedIndices = new ArrayList<>();
-        while (occupiedIndices.size() < seatsToOccupy) {
-            int randomIndex = random.nextInt(seats.size());
-            if (!occupiedIndices.contains(randomIndex)) {
-                occupiedIndices.add(randomIndex);
-                seats.get(randomIndex).bookSeat();
+    static List<Transport> loadFile(File file) throws IOException {
+        byte[] data = Files.readAllBytes(file.toPath());
+        int[] lineStarts = lineStarts(data);
+        Transport[] slots = new Transport[lineStarts.length - 1];
+        parseLines(file, data, lineStarts, 0, slots.length, OccupancySimulator.none(), slots, 0);
+        List<Transport> trips = new ArrayList<>();
+        for (Transport t : slots) {
+            if (t != null) {
+                trips.add(t);
             }
         }
+        return trips;
+    }
+
+    static boolean isDataFile(File file) {
+        return file.isFile() && (file.getName().endsWith(".txt") || file.getName().endsWith(".csv"));
+    }
+
+    /**
+     * Starts watching the transport files folder, call it before loadTimetable() so no change
+     * in between gets lost. Changes are only handled once the watcher is started with the loaded
+     * timetable (see TimetableWatcher.start). null if switched off with -Dtransport.reload=false
+     */
+    public static TimetableWatcher watch() throws IOException {
+        if ("false".equals(System.getProperty("transport.reload"))) {
+            return null;
+        }
+        return new TimetableWatcher(Paths.get(TRANSPORT_FOLDER), OccupancySimulator.fromSystemProperties());
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package transport;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Cheapest standard and premium fare for every day of a date range on one route,
+ * plus how many trips still have free seats that day. Made with one pass over the
+ * route's days in the TripIndex (see TripSearcher.fareCalendar).
+ */
+public class FareCalendar {
+
+    private final String departure;
+    private final String arrival;
+    private final List<Day> days;
+
+    FareCalendar(String departure, String arrival, List<Day> days) {
+        this.departure = departure;
+        this.arrival = arrival;
+        this.days = days;
+    }
+
+    // every day from..to (both included), days without trips are in there too
+    static FareCalendar build(String departure, String arrival,
+                              NavigableMap<LocalDate, TripIndex.DayTrips> byDate, LocalDate from, LocalDate to) {
+        List<Day> days = new ArrayList<>();
+
+        Iterator<Map.Entry<LocalDate, TripIndex.DayTrips>> withTrips = (byDate == null)
+                ? Collections.emptyIterator()
+                : byDate.subMap(from, true, to, true).entrySet().iterator();
+        Map.Entry<LocalDate, TripIndex.DayTrips> next = withTrips.hasNext() ? withTrips.next() : null;
+
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            Day day = new Day(date);
+            if (next != null && next.getKey().equals(date)) {
+                Iterator<Transport> trips = next.getValue().inDepartureOrder();
+                while (trips.hasNext()) {
+                    day.add(trips.next());
+                }
+                next = withTrips.hasNext() ? withTrips.next() : null;
+            }
+            days.add(day);
+        }
+
+        return new FareCalendar(departure, arrival, days);
+    }
+
+    public String getDeparture() { return departure; }
+    public String getArrival() { return arrival; }
+    public List<Day> getDays() { return days; }
+
+    // the day with the lowest fare in the class, null if nothing is bookable in the range
+    public Day getCheapestDay(boolean premium) {
+        Day cheapest = null;
+        for (Day day : days) {
+            if (day.hasFare(premium) && (cheapest == null || day.getMinPrice(premium) < cheapest.getMinPrice(premium))) {
+                cheapest = day;
+            }
+        }
+        return cheapest;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        output.append(String.format("Fares %s → %s\n", departure, arrival));
+        for (Day day : days) {
+            output.append("  ").append(day).append("\n");
+        }
+        return output.toString();
+    }
+
+    public static class Day {
+        private final LocalDate date;
+        private double minStandardPrice = Double.MAX_VALUE;
+        private double minPremiumPrice = Double.MAX_VALUE;
+        private int tripsWithFreeSeats;
+
+        Day(LocalDate date) {
+            this.date = date;
+        }
+
+        // a fare only counts if that class still has a free seat
+        private void add(Transport t) {
+            boolean standardFree = t.getAvailableSeats(false) > 0;
+            boolean premiumFree = t.getAvailableSeats(true) > 0;
+
+            if (standardFree) {
+                minStandardPrice = Math.min(minStandardPrice, t.getStandardPrice());
+            }
+            if (premiumFree) {
+                minPremiumPrice = Math.min(minPremiumPrice, t.getPremiumPrice());
+            }
+            if (standardFree || premiumFree) {
+                tripsWithFreeSeats++;
+            }
+        }
+
+        public LocalDate getDate() { return date; }
+        public int getTripsWithFreeSeats() { return tripsWithFreeSeats; }
+
+        public boolean hasFare(boolean premium) {
+            return getMinPrice(premium) != Double.MAX_VALUE;
+        }
+
+        // Double.MAX_VALUE when there is no bookable trip in that class
+        public double getMinPrice(boolean premium) {
+            return premium ? minPremiumPrice : minStandardPrice;
+        }
+
+        @Override
+        public String toString() {
+            if (tripsWithFreeSeats == 0) {
+                return date + " | no trips";
+            }
+            return String.format("%s | from €%s / €%s | %d trip(s)", date,
+                    hasFare(false) ? String.format("%.2f", minStandardPrice) : "-",
+                    hasFare(true) ? String.format("%.2f", minPremiumPrice) : "-",
+                    tripsWithFreeSeats);
+        }
+    }
+}
\ No newline at end of file
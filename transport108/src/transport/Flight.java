@@ -5,62 +5,69 @@ import java.time.LocalTime;
 
 public class Flight extends Transport {
 
+    // every flight has the same seats so they all share one layout
+    private static final SeatLayout LAYOUT = buildLayout();
+
     // Aircraft vary greatly but for this simple implementation 180 seats
     public Flight(String id, String departure, String arrival,
                   LocalDate date, LocalTime departureTime, LocalTime arrivalTime,
                   double standardPrice, double premiumPrice, String airline) {
         super(id, "FLIGHT", departure, arrival, date, departureTime, arrivalTime,
-                standardPrice, premiumPrice, airline, 180);
+                standardPrice, premiumPrice, airline, LAYOUT);
     }
 
-    @Override
-    protected void initializeSeats() {
+    private static SeatLayout buildLayout() {
+        // seat letters of a row from left to right, | is where the aisle is
+        SeatLayout.Builder layout = new SeatLayout.Builder("FLIGHT", "ABC|DEF|GHJ");
+
         // The layout for this 180 seats, 9 seats per row (A-C | D-F | G-J layout)
 
         // Business Class
         for (int row = 1; row <= 5; row++) {
-            seats.add(new Seat(row + "A", "WINDOW", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "B", "MIDDLE", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "C", "AISLE", row, true, "EXCELLENT"));
+            layout.seat(row, "A", "WINDOW", true, "EXCELLENT");
+            layout.seat(row, "B", "MIDDLE", true, "EXCELLENT");
+            layout.seat(row, "C", "AISLE", true, "EXCELLENT");
             // Aisle
-            seats.add(new Seat(row + "D", "AISLE", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "E", "MIDDLE", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "F", "AISLE", row, true, "EXCELLENT"));
+            layout.seat(row, "D", "AISLE", true, "EXCELLENT");
+            layout.seat(row, "E", "MIDDLE", true, "EXCELLENT");
+            layout.seat(row, "F", "AISLE", true, "EXCELLENT");
             // Aisle
-            seats.add(new Seat(row + "G", "AISLE", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "H", "MIDDLE", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "J", "WINDOW", row, true, "EXCELLENT"));
+            layout.seat(row, "G", "AISLE", true, "EXCELLENT");
+            layout.seat(row, "H", "MIDDLE", true, "EXCELLENT");
+            layout.seat(row, "J", "WINDOW", true, "EXCELLENT");
         }
 
         // Economy Good Quality
         for (int row = 6; row <= 15; row++) {
-            seats.add(new Seat(row + "A", "WINDOW", row, false, "GOOD"));
-            seats.add(new Seat(row + "B", "MIDDLE", row, false, "GOOD"));
-            seats.add(new Seat(row + "C", "AISLE", row, false, "GOOD"));
+            layout.seat(row, "A", "WINDOW", false, "GOOD");
+            layout.seat(row, "B", "MIDDLE", false, "GOOD");
+            layout.seat(row, "C", "AISLE", false, "GOOD");
             // Aisle
-            seats.add(new Seat(row + "D", "AISLE", row, false, "GOOD"));
-            seats.add(new Seat(row + "E", "MIDDLE", row, false, "GOOD"));
-            seats.add(new Seat(row + "F", "AISLE", row, false, "GOOD"));
+            layout.seat(row, "D", "AISLE", false, "GOOD");
+            layout.seat(row, "E", "MIDDLE", false, "GOOD");
+            layout.seat(row, "F", "AISLE", false, "GOOD");
             // Aisle
-            seats.add(new Seat(row + "G", "AISLE", row, false, "GOOD"));
-            seats.add(new Seat(row + "H", "MIDDLE", row, false, "GOOD"));
-            seats.add(new Seat(row + "J", "WINDOW", row, false, "GOOD"));
+            layout.seat(row, "G", "AISLE", false, "GOOD");
+            layout.seat(row, "H", "MIDDLE", false, "GOOD");
+            layout.seat(row, "J", "WINDOW", false, "GOOD");
         }
 
         // Economy Poor Quality (back near toilets)
         for (int row = 16; row <= 20; row++) {
-            seats.add(new Seat(row + "A", "WINDOW", row, false, "POOR"));
-            seats.add(new Seat(row + "B", "MIDDLE", row, false, "POOR"));
-            seats.add(new Seat(row + "C", "AISLE", row, false, "POOR"));
+            layout.seat(row, "A", "WINDOW", false, "POOR");
+            layout.seat(row, "B", "MIDDLE", false, "POOR");
+            layout.seat(row, "C", "AISLE", false, "POOR");
             // Aisle
-            seats.add(new Seat(row + "D", "AISLE", row, false, "POOR"));
-            seats.add(new Seat(row + "E", "MIDDLE", row, false, "POOR"));
-            seats.add(new Seat(row + "F", "AISLE", row, false, "POOR"));
+            layout.seat(row, "D", "AISLE", false, "POOR");
+            layout.seat(row, "E", "MIDDLE", false, "POOR");
+            layout.seat(row, "F", "AISLE", false, "POOR");
             // =Aisle
-            seats.add(new Seat(row + "G", "AISLE", row, false, "POOR"));
-            seats.add(new Seat(row + "H", "MIDDLE", row, false, "POOR"));
-            seats.add(new Seat(row + "J", "WINDOW", row, false, "POOR"));
+            layout.seat(row, "G", "AISLE", false, "POOR");
+            layout.seat(row, "H", "MIDDLE", false, "POOR");
+            layout.seat(row, "J", "WINDOW", false, "POOR");
         }
+
+        return layout.build();
     }
 
     @Override
@@ -0,0 +1,176 @@
+package transport;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A booking for a group over several trips (e.g. a tour operator: train there, flight back).
+ * Either every leg gets its seats or none does.
+ *
+ * No locks: every leg takes its seats with the all-or-nothing claim of the transport
+ * (compare-and-set on the seat bitmap). If another booking took one of the allocated seats
+ * in the meantime the leg allocates again and retries (optimistic), the legs already taken
+ * are kept meanwhile. Only when a leg really can't be booked (or anything else goes wrong)
+ * are the taken legs given back.
+ * Legs are always taken in the same order (by id and date) so two groups wanting the same
+ * trips don't keep getting in each other's way.
+ *
+ * BookingSystem uses it to book a journey with changes in one go. The legs go into the
+ * BookingJournal as one record (logGroup), after a restart they are normal bookings.
+ */
+public class GroupBooking {
+
+    // how often a leg is allocated again when other bookings keep taking the seats first
+    private static final int MAX_ATTEMPTS = 8;
+
+    private final String groupId;
+    private final String customerName;
+    private final List<Booking> bookings;
+
+    private GroupBooking(String groupId, String customerName, List<Booking> bookings) {
+        this.groupId = groupId;
+        this.customerName = customerName;
+        this.bookings = bookings;
+    }
+
+    /**
+     * One trip of the group: how many people travel on it and in which class.
+     */
+    public static class Leg {
+        private final Transport transport;
+        private final int passengers;
+        private final boolean premium;
+
+        public Leg(Transport transport, int passengers, boolean premium) {
+            if (passengers < 1) {
+                throw new IllegalArgumentException("A leg needs at least 1 passenger, got " + passengers);
+            }
+            this.transport = transport;
+            this.passengers = passengers;
+            this.premium = premium;
+        }
+
+        public Transport getTransport() { return transport; }
+        public int getPassengers() { return passengers; }
+        public boolean isPremium() { return premium; }
+
+        @Override
+        public String toString() {
+            return transport.getId() + " " + transport.getDeparture() + " → " + transport.getArrival()
+                    + " " + transport.getDate() + " (" + passengers + " " + (premium ? "premium" : "standard") + ")";
+        }
+    }
+
+    /**
+     * Books all legs for the group or nothing. Seats are picked by SeatAllocator like for a
+     * normal booking. If one or more legs can't be booked a BookedSeatsException lists them.
+     */
+    public static GroupBooking book(List<Leg> legs, String customerName) throws BookedSeatsException {
+        if (legs.isEmpty()) {
+            throw new IllegalArgumentException("A group booking needs at least one leg");
+        }
+
+        // same order for everybody, the booking order of the result stays like the request
+        Integer[] order = new Integer[legs.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing((Integer i) -> legs.get(i).getTransport().getId())
+                .thenComparing(i -> legs.get(i).getTransport().getDate()));
+
+        List<List<Seat>> taken = new ArrayList<>(Collections.nCopies(legs.size(), null));
+        boolean booked = false;
+        try {
+            List<String> failedLegs = new ArrayList<>();
+            for (int i : order) {
+                Leg leg = legs.get(i);
+                if (!failedLegs.isEmpty()) {
+                    // already failing, just check the rest so the customer sees every problem at once
+                    int free = leg.getTransport().getAvailableSeats(leg.isPremium());
+                    if (free < leg.getPassengers()) {
+                        failedLegs.add(leg + ": only " + free + " seats left");
+                    }
+                    continue;
+                }
+
+                try {
+                    taken.set(i, takeSeats(leg));
+                } catch (BookedSeatsException e) {
+                    failedLegs.add(leg + ": " + e.getMessage());
+                }
+            }
+
+            if (!failedLegs.isEmpty()) {
+                throw new BookedSeatsException("Group booking failed, nothing was booked. Legs that can't be booked:\n  "
+                        + String.join("\n  ", failedLegs));
+            }
+
+            List<Booking> bookings = new ArrayList<>(legs.size());
+            for (int i = 0; i < legs.size(); i++) {
+                Leg leg = legs.get(i);
+                bookings.add(new Booking(leg.getTransport(), taken.get(i), leg.getPassengers(), customerName,
+                        leg.isPremium(), true));
+            }
+            booked = true;
+            return new GroupBooking("GB-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase(),
+                    customerName, bookings);
+        } finally {
+            // all or nothing, whatever went wrong (also a RuntimeException) the legs we got go back
+            if (!booked) {
+                for (int i = 0; i < taken.size(); i++) {
+                    if (taken.get(i) != null) {
+                        legs.get(i).getTransport().releaseSeats(taken.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    // allocates and claims the seats of one leg, again if somebody was faster
+    private static List<Seat> takeSeats(Leg leg) throws BookedSeatsException {
+        Transport transport = leg.getTransport();
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            // throws when there aren't enough seats at all, no point in retrying that
+            List<Seat> seats = SeatAllocator.allocateSeats(transport, leg.getPassengers(), leg.isPremium());
+            if (transport.claimSeats(seats)) {
+                return seats;
+            }
+            // short random pause so competing bookings don't pick the same seats again
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(1_000L << attempt));
+        }
+        throw new BookedSeatsException("seats kept being taken by other bookings, please try again");
+    }
+
+    // cancels every leg that isn't cancelled already (a leg can be cancelled on its own)
+    public void cancel() {
+        for (Booking booking : bookings) {
+            if (!booking.isCancelled()) {
+                booking.cancel();
+            }
+        }
+    }
+
+    public String getGroupId() { return groupId; }
+    public String getCustomerName() { return customerName; }
+    public List<Booking> getBookings() { return bookings; }
+
+    public double getTotalPrice() {
+        double total = 0;
+        for (Booking booking : bookings) {
+            total += booking.getTotalPrice();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        output.append(String.format("Group booking %s for %s (%d legs, total €%.2f)\n",
+                groupId, customerName, bookings.size(), getTotalPrice()));
+        for (Booking booking : bookings) {
+            output.append(booking).append("\n");
+        }
+        return output.toString();
+    }
+}
\ No newline at end of file
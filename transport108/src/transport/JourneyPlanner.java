@@ -0,0 +1,235 @@
+package transport;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Finds journeys with changes (e.g. Dortmund -> Leipzig via Berlin) using the
+ * Connection Scan Algorithm: every Transport is one timed connection, all connections
+ * are kept in one array sorted by departure time and a search is just a scan over it.
+ *
+ * The scan runs once per allowed leg ("round"), round k only boards connections from
+ * stops reached with k-1 legs, so we get the earliest arrival for every number of transfers.
+ */
+public class JourneyPlanner {
+
+    // 15 minutes to change between two trips
+    public static final int DEFAULT_MIN_TRANSFER_MINUTES = 15;
+    // don't look at connections leaving more than 2 days after the wanted departure
+    public static final int DEFAULT_SEARCH_WINDOW_MINUTES = 2 * 24 * 60;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final CityDictionary cities = CityDictionary.global();
+    private final int minTransferMinutes;
+
+    // connections sorted by departure, times are minutes since 1970-01-01
+    private final Transport[] trips;
+    private final int[] depStop;
+    private final int[] arrStop;
+    private final int[] depTime;
+    private final int[] arrTime;
+
+    public JourneyPlanner(List<Transport> transports) {
+        this(transports, DEFAULT_MIN_TRANSFER_MINUTES);
+    }
+
+    public JourneyPlanner(List<Transport> transports, int minTransferMinutes) {
+        this.minTransferMinutes = minTransferMinutes;
+
+        int n = transports.size();
+
+        // sort by departure minute, packed with the list position so a plain long sort does it
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = ((long) departureMinute(transports.get(i)) << 32) | i;
+        }
+        Arrays.sort(order);
+
+        this.trips = new Transport[n];
+        this.depStop = new int[n];
+        this.arrStop = new int[n];
+        this.depTime = new int[n];
+        this.arrTime = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            Transport t = transports.get((int) order[i]);
+            trips[i] = t;
+            depStop[i] = t.getDepartureId();
+            arrStop[i] = t.getArrivalId();
+            depTime[i] = (int) (order[i] >> 32);
+            arrTime[i] = depTime[i] + (int) t.getDuration().toMinutes();
+        }
+    }
+
+    private static int departureMinute(Transport t) {
+        return toMinute(t.getDate(), t.getDepartureTime());
+    }
+
+    private static int toMinute(LocalDate date, LocalTime time) {
+        return (int) (date.toEpochDay() * 1440 + time.getHour() * 60 + time.getMinute());
+    }
+
+    /**
+     * Journeys leaving on the given date (from 00:00), with up to maxTransfers changes.
+     * Returns the best journey for each number of transfers, only if it arrives earlier than
+     * the journeys with fewer changes (so no useless extra changes). Empty if nothing is found.
+     */
+    public List<Itinerary> findJourneys(String departure, String arrival, LocalDate date, int maxTransfers) {
+        return findJourneys(departure, arrival, date.atStartOfDay(), maxTransfers);
+    }
+
+    public List<Itinerary> findJourneys(String departure, String arrival, LocalDateTime earliestDeparture,
+                                        int maxTransfers) {
+        List<Itinerary> journeys = new ArrayList<>();
+
+        // stops are the city ids
+        int origin = cities.lookup(departure);
+        int target = cities.lookup(arrival);
+        if (origin == CityDictionary.UNKNOWN || target == CityDictionary.UNKNOWN || origin == target) {
+            return journeys;
+        }
+
+        int stops = cities.size();
+        int rounds = maxTransfers + 1;
+        int start = toMinute(earliestDeparture.toLocalDate(), earliestDeparture.toLocalTime());
+        int lastDeparture = start + DEFAULT_SEARCH_WINDOW_MINUTES;
+        int first = firstConnectionFrom(start);
+
+        int[] previous = new int[stops];
+        Arrays.fill(previous, UNREACHED);
+        previous[origin] = start;
+        int[] previousLeg = new int[stops];
+        Arrays.fill(previousLeg, -1);
+
+        // legs[k][stop] = connection used to reach the stop with at most k+1 legs
+        int[][] legs = new int[rounds][];
+
+        for (int round = 0; round < rounds; round++) {
+            int[] arrivals = previous.clone();
+            int[] leg = previousLeg.clone();
+
+            for (int c = first; c < trips.length; c++) {
+                if (depTime[c] >= arrivals[target] || depTime[c] > lastDeparture) {
+                    break;
+                }
+
+                int from = depStop[c];
+                if (previous[from] == UNREACHED) {
+                    continue;
+                }
+
+                // at the origin we just have to be there, everywhere else we need time to change
+                int ready = (from == origin) ? previous[from] : previous[from] + minTransferMinutes;
+                if (depTime[c] < ready || arrTime[c] >= arrivals[arrStop[c]]) {
+                    continue;
+                }
+
+                Transport t = trips[c];
+                if (t.getAvailableSeatCount() == 0) {
+                    continue;
+                }
+
+                arrivals[arrStop[c]] = arrTime[c];
+                leg[arrStop[c]] = c;
+            }
+
+            legs[round] = leg;
+
+            boolean improved = arrivals[target] < previous[target];
+            if (improved) {
+                journeys.add(buildItinerary(legs, round, origin, target));
+            }
+
+            previous = arrivals;
+            previousLeg = leg;
+        }
+
+        return journeys;
+    }
+
+    // binary search for the first connection leaving at or after the minute
+    private int firstConnectionFrom(int minute) {
+        int low = 0;
+        int high = depTime.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (depTime[mid] < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // walks back from the target: every leg was boarded at a stop reached in the round before
+    private Itinerary buildItinerary(int[][] legs, int round, int origin, int target) {
+        LinkedList<Transport> path = new LinkedList<>();
+        int stop = target;
+        for (int r = round; r >= 0 && stop != origin; r--) {
+            int c = legs[r][stop];
+            path.addFirst(trips[c]);
+            stop = depStop[c];
+        }
+        return new Itinerary(new ArrayList<>(path));
+    }
+
+    public int getMinTransferMinutes() { return minTransferMinutes; }
+
+    /**
+     * One journey made of one or more trips in a row.
+     */
+    public static class Itinerary {
+        private final List<Transport> legs;
+
+        public Itinerary(List<Transport> legs) {
+            this.legs = legs;
+        }
+
+        public List<Transport> getLegs() { return legs; }
+
+        public int getTransfers() { return legs.size() - 1; }
+
+        public LocalDateTime getDepartureDateTime() {
+            Transport first = legs.get(0);
+            return first.getDate().atTime(first.getDepartureTime());
+        }
+
+        public LocalDateTime getArrivalDateTime() {
+            Transport last = legs.get(legs.size() - 1);
+            return last.getDate().atTime(last.getDepartureTime()).plus(last.getDuration());
+        }
+
+        // from the first departure until the last arrival, waiting time included
+        public Duration getTotalDuration() {
+            return Duration.between(getDepartureDateTime(), getArrivalDateTime());
+        }
+
+        public double getTotalPrice(boolean premium) {
+            double total = 0;
+            for (Transport t : legs) {
+                total += t.getPrice(premium);
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            Duration dur = getTotalDuration();
+            StringBuilder output = new StringBuilder();
+            output.append(String.format("%s → %s | %d change%s | %dh %d m | from €%.2f",
+                    getDepartureDateTime().toString().replace('T', ' '),
+                    getArrivalDateTime().toString().replace('T', ' '),
+                    getTransfers(), getTransfers() == 1 ? "" : "s",
+                    dur.toHours(), dur.toMinutes() % 60, getTotalPrice(false)));
+            for (Transport t : legs) {
+                output.append("\n      • ").append(t);
+            }
+            return output.toString();
+        }
+    }
+}
\ No newline at end of file
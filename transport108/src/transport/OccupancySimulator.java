@@ -0,0 +1,159 @@
+package transport;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Takes some seats of freshly loaded trips so the demo feels like a real booking system.
+ *
+ * The seats are picked with Floyd's algorithm: k different seats out of n with exactly k random
+ * numbers and no list of picked seats (the trip's own bitmap says what is taken already), so a
+ * trip costs O(k) instead of the old "retry until List.contains says no".
+ *
+ * How full a trip gets comes from Rates, by default a range per transport type with optional
+ * overrides per route. With a seed the same files always give the same taken seats (benchmarks,
+ * bug reports), without one every start is different. NONE leaves all seats free (real data).
+ *
+ * From the command line:
+ *   -Dtransport.occupancy=none|random        (default random)
+ *   -Dtransport.occupancy.seed=42
+ *   -Dtransport.occupancy.BUS=0.5-0.8        (range per type, default 0.2-0.4)
+ *   -Dtransport.occupancy.route.Berlin-Hamburg=0.7-0.9
+ */
+public class OccupancySimulator {
+
+    public enum Mode { NONE, RANDOM }
+
+    /** How much of a trip is taken, between 0 and 1. Can use the random for a spread. */
+    public interface Rates {
+        double rateFor(Transport transport, RandomGenerator random);
+    }
+
+    private static final double DEFAULT_MIN = 0.20;
+    private static final double DEFAULT_MAX = 0.40;
+    private static final String PROPERTY = "transport.occupancy";
+
+    private final Mode mode;
+    private final Long seed;
+    private final Rates rates;
+    private final String settings;
+
+    /**
+     * `description` says what the rates do (e.g. "BUS 0.5-0.8"). It is part of getSettings(), which
+     * the TimetableSnapshot keeps to know if its taken seats still fit, so it has to be the same on
+     * every start for the same rates and different for other rates (a lambda's class name is not).
+     */
+    public OccupancySimulator(Mode mode, Long seed, Rates rates, String description) {
+        if (mode == null || rates == null) {
+            throw new IllegalArgumentException("mode and rates are needed");
+        }
+        if (description == null || description.isBlank()) {
+            throw new IllegalArgumentException("The rates need a description, it tells snapshots apart");
+        }
+        this.mode = mode;
+        this.seed = seed;
+        this.rates = rates;
+        this.settings = mode + "/" + seed + "/" + description;
+    }
+
+    // all seats stay free
+    public static OccupancySimulator none() {
+        return new OccupancySimulator(Mode.NONE, null, (t, r) -> 0, "all free");
+    }
+
+    // the settings from the -Dtransport.occupancy... properties
+    public static OccupancySimulator fromSystemProperties() {
+        String modeName = System.getProperty(PROPERTY, "random").trim();
+        if (modeName.equalsIgnoreCase("none")) {
+            return none();
+        }
+        if (!modeName.equalsIgnoreCase("random")) {
+            throw new IllegalArgumentException("-D" + PROPERTY + " must be none or random, not " + modeName);
+        }
+        Long seed = Long.getLong(PROPERTY + ".seed");
+
+        Map<String, double[]> byType = new HashMap<>();
+        for (String type : new String[]{"TRAIN", "BUS", "FLIGHT"}) {
+            String range = System.getProperty(PROPERTY + "." + type);
+            byType.put(type, range == null ? new double[]{DEFAULT_MIN, DEFAULT_MAX} : parseRange(range));
+        }
+        // route overrides, sorted so the settings text is always the same
+        Map<String, double[]> byRoute = new TreeMap<>();
+        String routePrefix = PROPERTY + ".route.";
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(routePrefix)) {
+                byRoute.put(name.substring(routePrefix.length()).toLowerCase(), parseRange(System.getProperty(name)));
+            }
+        }
+
+        Rates rates = (transport, random) -> {
+            double[] range = byRoute.get((transport.getDeparture() + "-" + transport.getArrival()).toLowerCase());
+            if (range == null) {
+                range = byType.get(transport.getType());
+            }
+            return range[0] + random.nextDouble() * (range[1] - range[0]);
+        };
+
+        StringJoiner description = new StringJoiner("/");
+        for (String type : new String[]{"TRAIN", "BUS", "FLIGHT"}) {
+            description.add(type + Arrays.toString(byType.get(type)));
+        }
+        byRoute.forEach((route, range) -> description.add(route + Arrays.toString(range)));
+        return new OccupancySimulator(Mode.RANDOM, seed, rates, description.toString());
+    }
+
+    // "0.2-0.4" or just "0.3"
+    private static double[] parseRange(String text) {
+        String[] parts = text.trim().split("-");
+        try {
+            double min = Double.parseDouble(parts[0].trim());
+            double max = parts.length > 1 ? Double.parseDouble(parts[1].trim()) : min;
+            if (parts.length > 2 || min < 0 || max > 1 || min > max) {
+                throw new IllegalArgumentException("Occupancy range must be like 0.2-0.4, got " + text);
+            }
+            return new double[]{min, max};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Occupancy range must be like 0.2-0.4, got " + text);
+        }
+    }
+
+    /**
+     * Takes the simulated seats of one trip. Meant for trips that were just loaded (all seats free),
+     * seats that are taken already count as picked.
+     */
+    public void occupy(Transport transport) {
+        if (mode == Mode.NONE) {
+            return;
+        }
+        RandomGenerator random = randomFor(transport);
+        int n = transport.getTotalSeats();
+        double rate = Math.min(1, Math.max(0, rates.rateFor(transport, random)));
+        int k = (int) (n * rate);
+
+        // Floyd: for j = n-k..n-1 pick t in [0, j]; if t is taken already j can't be, so take j
+        for (int j = n - k; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            if (!transport.claimSeat(t)) {
+                transport.claimSeat(j);
+            }
+        }
+    }
+
+    // seeded: only depends on the seed and the trip, not on which thread loads it or in what order
+    private RandomGenerator randomFor(Transport transport) {
+        if (seed == null) {
+            return ThreadLocalRandom.current();
+        }
+        long mixed = seed;
+        mixed = mixed * 31 + transport.getType().hashCode();
+        mixed = mixed * 31 + transport.getId().hashCode();
+        mixed = mixed * 31 + transport.getDate().toEpochDay();
+        return new SplittableRandom(mixed);
+    }
+
+    public Mode getMode() { return mode; }
+
+    // the settings as text, a snapshot made with other settings has other taken seats
+    public String getSettings() { return settings; }
+}
\ No newline at end of file
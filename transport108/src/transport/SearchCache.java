@@ -0,0 +1,216 @@
+package transport;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the results of recent searches, so popular routes (Berlin -> Munich...)
+ * don't get searched and sorted again for every customer.
+ *
+ * - bounded: when full the least recently used (LRU) or least often used (LFU) entry goes
+ * - every entry expires after a time to live (TTL)
+ * - when a trip sells out or gets seats again, the version of its route goes up and the cached
+ *   searches of that route are out of date. That is one counter increment on the booking thread
+ *   (no lock, no looking through the entries), old entries are dropped when they are asked for
+ * - a result from the nearest dates (nothing on the date itself) is remembered as such
+ */
+public class SearchCache implements Transport.AvailabilityListener {
+
+    public enum Eviction { LRU, LFU }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+
+    private final int capacity;
+    private final long ttlMillis;
+    private final Eviction eviction;
+
+    // access order = true, so the first entry is always the least recently used one
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // versions go up on every availability change of a route, and all together on clear().
+    // An entry is only good while the sum is what it was when its search started
+    private final Map<Long, AtomicLong> routeVersions = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public SearchCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL_MILLIS, Eviction.LRU);
+    }
+
+    public SearchCache(int capacity, long ttlMillis, Eviction eviction) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        this.eviction = eviction;
+    }
+
+    /**
+     * What a cached search found. nearbyDates = nothing on the date itself,
+     * the trips are from the nearest dates.
+     */
+    public static class Result {
+        private final List<Transport> trips;
+        private final boolean nearbyDates;
+
+        Result(List<Transport> trips, boolean nearbyDates) {
+            this.trips = trips;
+            this.nearbyDates = nearbyDates;
+        }
+
+        public List<Transport> getTrips() { return trips; }
+        public boolean isNearbyDates() { return nearbyDates; }
+    }
+
+    // cached result or null when the search has to be done
+    public synchronized Result get(String departure, String arrival, LocalDate date) {
+        long route = TripIndex.routeKey(departure, arrival);
+        Key key = new Key(route, date);
+        Entry entry = entries.get(key);
+
+        if (entry != null && entry.version != version(route)) {
+            // seats of the route changed since the search
+            entries.remove(key);
+            invalidations++;
+            entry = null;
+        } else if (entry != null && System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+            entries.remove(key);
+            expirations++;
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        entry.uses++;
+        return new Result(new ArrayList<>(entry.trips), entry.nearbyDates);
+    }
+
+    // both parts only go up, so the sum changes whenever one of them does
+    public long getVersion(String departure, String arrival) {
+        return version(TripIndex.routeKey(departure, arrival));
+    }
+
+    private long version(long route) {
+        AtomicLong routeVersion = routeVersions.get(route);
+        return generation.get() + (routeVersion == null ? 0 : routeVersion.get());
+    }
+
+    /**
+     * Stores the results of a search. searchVersion is getVersion() from before the search,
+     * if seats changed in the meantime the results could already be wrong so they are not kept.
+     */
+    public synchronized void put(String departure, String arrival, LocalDate date,
+                                 List<Transport> trips, boolean nearbyDates, long searchVersion) {
+        long route = TripIndex.routeKey(departure, arrival);
+        if (searchVersion != version(route)) {
+            return;
+        }
+
+        entries.put(new Key(route, date), new Entry(trips, nearbyDates, searchVersion));
+
+        while (entries.size() > capacity) {
+            evictOne();
+        }
+    }
+
+    private void evictOne() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        Map.Entry<Key, Entry> victim = it.next();
+
+        if (eviction == Eviction.LFU) {
+            // least used one, on a tie the least recently used (it comes first)
+            while (it.hasNext()) {
+                Map.Entry<Key, Entry> candidate = it.next();
+                if (candidate.getValue().uses < victim.getValue().uses) {
+                    victim = candidate;
+                }
+            }
+        }
+
+        entries.remove(victim.getKey());
+        evictions++;
+    }
+
+    // runs on the booking thread, so no cache lock: the searches of the route are just out of date now
+    @Override
+    public void availabilityChanged(Transport transport, boolean soldOut) {
+        routeVersions.computeIfAbsent(transport.getRouteKey(), route -> new AtomicLong()).incrementAndGet();
+    }
+
+    public synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+        generation.incrementAndGet();
+    }
+
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getExpirations() { return expirations; }
+    public synchronized long getInvalidations() { return invalidations; }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("SearchCache[%s, %d/%d entries, hits=%d, misses=%d (%.1f%% hit rate), " +
+                        "evictions=%d, expired=%d, invalidated=%d]",
+                eviction, entries.size(), capacity, hits, misses, getHitRate() * 100,
+                evictions, expirations, invalidations);
+    }
+
+    private static class Key {
+        private final long route;
+        private final LocalDate date;
+
+        Key(long route, LocalDate date) {
+            this.route = route;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return route == other.route && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(route) + date.hashCode();
+        }
+    }
+
+    private static class Entry {
+        private final List<Transport> trips;
+        private final boolean nearbyDates;
+        private final long version;
+        private final long createdAt;
+        private long uses;
+
+        Entry(List<Transport> trips, boolean nearbyDates, long version) {
+            this.trips = new ArrayList<>(trips);
+            this.nearbyDates = nearbyDates;
+            this.version = version;
+            this.createdAt = System.currentTimeMillis();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package transport;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the threads used for searching so they are created once and shared by all searches
+ * (before this every searchTrips call made and destroyed its own pool of 3 threads).
+ *
+ * A search runs one task per transport type like the original search.
+ *
+ * Settings can be given as system properties:
+ *   -Dtransport.search.threads=4  -Dtransport.search.virtual=true
+ */
+public class SearchEngine {
+
+    private static SearchEngine defaultEngine;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final boolean virtualThreads;
+    private final Thread shutdownHook;
+
+    public SearchEngine(int parallelism, boolean useVirtualThreads) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        }
+        this.parallelism = parallelism;
+
+        ExecutorService virtualExecutor = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        if (useVirtualThreads && virtualExecutor == null) {
+            System.err.println("⚠️ Virtual threads need Java 21+, using normal threads for searching");
+        }
+
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.virtualThreads = true;
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread thread = new Thread(r, "trip-search-" + threadNumber.getAndIncrement());
+                // daemon so a forgotten shutdown() never keeps the program running
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.virtualThreads = false;
+        }
+
+        this.shutdownHook = new Thread(this::shutdownNow, "trip-search-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    // shared engine configured from the system properties (created on first use)
+    public static synchronized SearchEngine defaultEngine() {
+        if (defaultEngine == null || defaultEngine.isShutdown()) {
+            int threads = Integer.getInteger("transport.search.threads",
+                    Math.min(3, Runtime.getRuntime().availableProcessors()));
+            boolean virtual = Boolean.getBoolean("transport.search.virtual");
+            defaultEngine = new SearchEngine(Math.max(1, threads), virtual);
+        }
+        return defaultEngine;
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    // stops taking new searches and lets running ones finish
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM is already shutting down, the hook is running anyway
+        }
+    }
+
+    private void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    public boolean isShutdown() { return executor.isShutdown(); }
+    public int getParallelism() { return parallelism; }
+    public boolean usesVirtualThreads() { return virtualThreads; }
+
+    // looked up by reflection so the project still compiles and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -1,45 +1,55 @@
 package transport;
 
+import java.util.Objects;
+
+// A seat of one transport. It is only a view: the details come from the transport's
+// shared SeatLayout and "taken or not" from its SeatOccupancy bitmap
 public class Seat {
-    private String SeatNumber;
-    private String position;
-    private int row;
-    private boolean isPremium;
-    private String quality; //
-    private boolean isOccupied;
-
-    //constructor to initialise new seat
-    public Seat(String seatNumber, String position, int row, boolean isPremium, String quality) {
-        this.SeatNumber = seatNumber;
-        this.position = position;
-        this.row = row;
-        this.isPremium = isPremium;
-        this.quality = quality;
-        this.isOccupied = false;
+    private final Transport transport;
+    private final int index; // position of the seat in the layout
+
+    Seat(Transport transport, int index) {
+        this.transport = transport;
+        this.index = index;
     }
 
+    // atomic, two bookings can't both get the seat
     public boolean bookSeat() {
-        if (!isOccupied) {
-            isOccupied = true;
-            return true;
-        }
-        return false;
+        return transport.claimSeat(index);
     }
 
     public void release() {
-        isOccupied = false;
+        transport.releaseSeat(index);
     }
 
     // Getters
-    public String getSeatNumber() { return SeatNumber; }
-    public int getRow() { return row; }
-    public String getPosition() { return position; }
-    public boolean isPremium() { return isPremium; }
-    public boolean isOccupied() { return isOccupied; }
-    public String getQuality() { return quality; }
+    public String getSeatNumber() { return transport.getLayout().getSeatNumber(index); }
+    public int getRow() { return transport.getLayout().getRow(index); }
+    public String getPosition() { return transport.getLayout().getPosition(index); }
+    public boolean isPremium() { return transport.getLayout().isPremium(index); }
+    public boolean isOccupied() { return transport.isSeatOccupied(index); }
+    // on hold for somebody who hasn't confirmed yet (isOccupied() is true as well)
+    public boolean isHeld() { return transport.isSeatHeld(index); }
+    public String getQuality() { return transport.getLayout().getQuality(index); }
+    public Transport getTransport() { return transport; }
+    public int getIndex() { return index; }
+
+    // two views of the same seat are the same seat
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Seat)) return false;
+        Seat other = (Seat) o;
+        return transport == other.transport && index == other.index;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(System.identityHashCode(transport), index);
+    }
 
     @Override //for example it can show the memory address
     public String toString() {
-        return SeatNumber + (isOccupied ? "[X]" : "[ ]");
+        return getSeatNumber() + (isHeld() ? "[H]" : isOccupied() ? "[X]" : "[ ]");
     }
 }
\ No newline at end of file
@@ -1,14 +1,19 @@
 package transport;
 
 import java.util.*;
-
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class SeatAllocator {
 
+    // fixed seed for the random bus seats, null = a different result every time
+    private static volatile Long randomSeed = Long.getLong("transport.seats.seed");
+
     /**
      * Allocates seats based on transport type and class
      * Premium: Always gets the best available seats (EXCELLENT quality, front rows)
      * Standard on Train/Flight: Gets GOOD quality reserved seats (window/aisle preferred)
+     * Groups (premium or Train/Flight standard) get adjacent seats, see GroupSeatAllocator
      * Standard on Bus: Random assignment from available standard seats
      */
 
@@ -16,16 +21,9 @@ public class SeatAllocator {
     public static List<Seat> allocateSeats(Transport transport, int count, boolean premium)
             throws BookedSeatsException {
 
-        // get available seats for the class chosen
-        List<Seat> available = new ArrayList<>();
-        for (Seat seat : transport.getSeats()) {
-            if (seat.isPremium() == premium && !seat.isOccupied()) {
-                available.add(seat);
-            }
-        }
-
-        // Check if enough seats available
-        if (available.size() < count) {
+        // Check if enough seats available (the transport keeps count, the Booking then claims them atomically)
+        int availableSeats = transport.getAvailableSeats(premium);
+        if (availableSeats < count) {
             String classType;
             if (premium) {
                 classType = "premium";
@@ -36,14 +34,17 @@ public class SeatAllocator {
             //slowly learning how %d is such a saver
             throw new BookedSeatsException(
                     String.format("Not enough %s seats available. Need %d, but only %d available.",
-                            classType, count, available.size()));
+                            classType, count, availableSeats));
         }
 
-        List<Seat> chosenSeats = new ArrayList<>();
+        SeatLayout layout = transport.getLayout();
+        List<Seat> chosenSeats;
         if (premium) {
 
-            // Premium seats
-            chosenSeats = allocatePremiumSeats(available, count);
+            // Premium seats (a group gets seats next to each other)
+            chosenSeats = count > 1
+                    ? GroupSeatAllocator.allocate(transport, count, true)
+                    : firstFreeSeats(transport, layout.getPremiumOrder(), count);
 
         }
 
@@ -52,125 +53,142 @@ public class SeatAllocator {
             if (transport.getType().equals("BUS")) {
 
                 // Bus: Random assignment
-                chosenSeats = allocateRandomSeats(available, count);
+                chosenSeats = allocateRandomSeats(transport, count);
 
             } else
             {
                 // Train/Flight reserve good seats
-                chosenSeats = allocateStandardReservedSeats(available, count);
+                chosenSeats = allocateStandardReservedSeats(transport, count);
             }
         }
 
+        if (chosenSeats.size() < count) {
+            // somebody booked in the meantime, the counter was already out of date
+            throw new BookedSeatsException(
+                    String.format("Not enough %s seats available anymore. Need %d, please try again.",
+                            premium ? "premium" : "standard", count));
+        }
+
         return chosenSeats;
     }
 
-    //Premium seats allocation
-    private static List<Seat> allocatePremiumSeats(List<Seat> available, int count) {
-        // Sort by quality
-        available.sort((s1, s2) -> {
-            int qualityCompare = qualityOrder(s1.getQuality()) - qualityOrder(s2.getQuality());
-            if (qualityCompare != 0) return qualityCompare;
-
-            int rowCompare = s1.getRow() - s2.getRow();
-            if (rowCompare != 0) return rowCompare;
-
-            return positionOrder(s1.getPosition()) - positionOrder(s2.getPosition());
-        });
-
-        return available.subList(0, count);
+    /**
+     * Walks a precomputed seat order (see SeatLayout) and takes the first free seats.
+     * Stops as soon as it has enough, so nothing is sorted and only the seats looked at cost time.
+     */
+    private static List<Seat> firstFreeSeats(Transport transport, int[] order, int count) {
+        List<Seat> chosen = new ArrayList<>(count);
+        for (int i = 0; i < order.length && chosen.size() < count; i++) {
+            if (!transport.isSeatOccupied(order[i])) {
+                chosen.add(new Seat(transport, order[i]));
+            }
+        }
+        return chosen;
     }
 
 // handling groups in good quality seats
-    private static List<Seat> allocateStandardReservedSeats(List<Seat> available, int count) {
-        // Filter for good quality seats first
-        List<Seat> goodSeats = new ArrayList<>();
-        for (Seat s : available) {
-            if (s.getQuality().equals("GOOD")) {
-                goodSeats.add(s);
-            }
-        }
+    private static List<Seat> allocateStandardReservedSeats(Transport transport, int count) {
+        SeatLayout layout = transport.getLayout();
 
-        // If not enough good seats, fall back to all available
-        if (goodSeats.size() < count) {
-            goodSeats = new ArrayList<>(available);
+        // groups sit together (same row if possible), see GroupSeatAllocator
+        if (count > 1) {
+            return GroupSeatAllocator.allocate(transport, count, false);
         }
 
-        // Try to find seats in the same row or adjacent rows
-        List<Seat> clustered = findClusteredSeats(goodSeats, count);
-
-        if (clustered.size() >= count) {
-            return clustered.subList(0, count);
+        // good quality seats first, row by row so groups sit close to each other
+        List<Seat> goodSeats = firstFreeSeats(transport, layout.getReservedGoodOrder(), count);
+        if (goodSeats.size() == count) {
+            return goodSeats;
         }
 
-        // if clustering fails, sort by quality and row, prefer window/aisle
-        goodSeats.sort((s1, s2) -> {
-            int qualityCompare = qualityOrder(s1.getQuality()) - qualityOrder(s2.getQuality());
-            if (qualityCompare != 0) return qualityCompare;
-
-            int rowCompare = s1.getRow() - s2.getRow();
-            if (rowCompare != 0) return rowCompare;
-
-            return positionOrder(s1.getPosition()) - positionOrder(s2.getPosition());
-        });
-
-        return goodSeats.subList(0, count);
+        // If not enough good seats, fall back to all available (again row by row)
+        return firstFreeSeats(transport, layout.getReservedOrder(), count);
     }
 
-    //Random allocation for buses
-    private static List<Seat> allocateRandomSeats(List<Seat> available, int count) {
-        Collections.shuffle(available);
-        return available.subList(0, count);
-    }
-
-    //next or adjacent seats
-    private static List<Seat> findClusteredSeats(List<Seat> seats, int count) {
-        // Group by row
-// Group by row
-        Map<Integer, List<Seat>> byRow = new HashMap<>();
-        for (Seat seat : seats) {
-            if (!byRow.containsKey(seat.getRow())) {
-                byRow.put(seat.getRow(), new ArrayList<>());
+    /**
+     * Random allocation for buses, without building and shuffling a list of all free seats.
+     * While at least half of the standard seats are free we just draw random seats and draw again
+     * on a taken one (less than 2 draws per seat on average), so it costs O(count). On an almost
+     * full bus we draw count different positions among the free seats instead (Floyd's sampling)
+     * and walk the seats once, stopping at the last drawn one. Both only need O(count) memory.
+     */
+    private static List<Seat> allocateRandomSeats(Transport transport, int count) {
+        int[] standardSeats = transport.getLayout().getReservedOrder();
+        int free = transport.getAvailableSeats(false);
+        RandomGenerator random = randomFor(transport);
+        List<Seat> chosen = new ArrayList<>(count);
+
+        if (free >= standardSeats.length / 2 + count) {
+            int[] picked = new int[count];
+            for (int draws = 0; draws < 4 * count + 16 && chosen.size() < count; draws++) {
+                int seat = standardSeats[random.nextInt(standardSeats.length)];
+                if (!transport.isSeatOccupied(seat) && !contains(picked, chosen.size(), seat)) {
+                    picked[chosen.size()] = seat;
+                    chosen.add(new Seat(transport, seat));
+                }
+            }
+            if (chosen.size() == count) {
+                return chosen;
             }
-            byRow.get(seat.getRow()).add(seat);
+            // the bus filled up while we were drawing, do it the other way
+            chosen.clear();
+            free = transport.getAvailableSeats(false);
         }
 
-        List<Seat> result = new ArrayList<>();
-
-        // Sort rows
-        List<Integer> rows = new ArrayList<>(byRow.keySet());
-        Collections.sort(rows);
+        // positions among the free seats (0 = first free one), count different ones out of free
+        int[] positions = new int[Math.max(0, Math.min(count, free))];
+        for (int i = 0, n = free - positions.length; i < positions.length; i++, n++) {
+            int position = random.nextInt(n + 1);
+            positions[i] = contains(positions, i, position) ? n : position;
+        }
+        Arrays.sort(positions);
 
-        // Try to fill from consecutive rows
-        for (int i = 0; i < rows.size() && result.size() < count; i++) {
-            List<Seat> rowSeats = byRow.get(rows.get(i));
-            for (Seat seat : rowSeats) {
-                if (result.size() < count) {
-                    result.add(seat);
-                }
+        int freeSeen = 0;
+        for (int i = 0; i < standardSeats.length && chosen.size() < positions.length; i++) {
+            if (transport.isSeatOccupied(standardSeats[i])) {
+                continue;
+            }
+            if (freeSeen == positions[chosen.size()]) {
+                chosen.add(new Seat(transport, standardSeats[i]));
             }
+            freeSeen++;
         }
-
-        return result;
+        // found in seat order, hand them out in random order like the draws above
+        for (int i = chosen.size() - 1; i > 0; i--) {
+            Collections.swap(chosen, i, random.nextInt(i + 1));
+        }
+        // if the counter was behind (somebody booked meanwhile) this is short and the caller says so
+        return chosen;
     }
 
-    // Order by Quality
-    private static int qualityOrder(String quality) {
-        switch (quality) {
-            case "EXCELLENT": return 0;
-            case "GOOD": return 1;
-            case "AVERAGE": return 2;
-            case "POOR": return 3;
-            default: return 4;
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * Makes the random seat assignment repeatable (tests, replaying bookings): with a seed the
+     * same bookings in the same order always get the same seats. null = really random again.
+     * Can also be set with -Dtransport.seats.seed=42
+     */
+    public static void setRandomSeed(Long seed) {
+        randomSeed = seed;
     }
 
-    //Order of positions
-    private static int positionOrder(String position) {
-        switch (position) {
-            case "WINDOW": return 0;
-            case "AISLE": return 1;
-            case "MIDDLE": return 2;
-            default: return 3;
+    // seeded: depends only on the seed, the trip and how full it is, so not on threads or timing
+    private static RandomGenerator randomFor(Transport transport) {
+        Long seed = randomSeed;
+        if (seed == null) {
+            return ThreadLocalRandom.current();
         }
+        long mixed = seed;
+        mixed = mixed * 31 + transport.getId().hashCode();
+        mixed = mixed * 31 + transport.getDate().toEpochDay();
+        mixed = mixed * 31 + transport.getAvailableSeats(false);
+        return new SplittableRandom(mixed);
     }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package transport;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Seats put aside for one customer while they decide (picking seats, checking the preview...).
+ * Held seats count as taken for everybody else, but they are not booked: the hold either gets
+ * confirmed into a Booking, released, or it expires after its time is up (see SeatHoldManager).
+ *
+ * A hold only ends once, whatever comes first wins (confirm vs. expiry can't both happen).
+ * A hot reload moves a hold that is still active to the new version of its trip, like a booking.
+ */
+public class SeatHold {
+
+    public enum State { ACTIVE, CONFIRMED, RELEASED, EXPIRED }
+
+    private final String holdId;
+    private Transport transport;
+    private final String owner;
+    private final long deadlineNanos;   // System.nanoTime() when the hold runs out
+    private final List<Seat> seats = new ArrayList<>();
+    private State state = State.ACTIVE;
+
+    // only used by the timing wheel thread: full turns of the wheel left before the hold is due
+    long remainingRounds;
+
+    SeatHold(String holdId, Transport transport, List<Seat> seats, String owner, long deadlineNanos) {
+        this.holdId = holdId;
+        this.transport = transport;
+        this.owner = owner;
+        this.deadlineNanos = deadlineNanos;
+        this.seats.addAll(seats);
+    }
+
+    // adds a seat that is already held on the transport, false if the hold is over
+    synchronized boolean add(Seat seat) {
+        if (state != State.ACTIVE) {
+            return false;
+        }
+        // the seat may still come from the trip before a reload, the seats are the same
+        seats.add(seat.getTransport() == transport ? seat : new Seat(transport, seat.getIndex()));
+        return true;
+    }
+
+    // the trip got a new version in a timetable reload, false if the hold is already over
+    synchronized boolean moveTo(Transport updated) {
+        if (state != State.ACTIVE) {
+            return false;
+        }
+        for (int i = 0; i < seats.size(); i++) {
+            seats.set(i, new Seat(updated, seats.get(i).getIndex()));
+        }
+        this.transport = updated;
+        return true;
+    }
+
+    // moves the hold from ACTIVE to the end state, false if it already ended some other way
+    synchronized boolean finish(State endState) {
+        if (state != State.ACTIVE) {
+            return false;
+        }
+        state = endState;
+        return true;
+    }
+
+    boolean isDue(long now) {
+        return now - deadlineNanos >= 0;
+    }
+
+    long getDeadlineNanos() { return deadlineNanos; }
+
+    public String getHoldId() { return holdId; }
+    public synchronized Transport getTransport() { return transport; }
+    public String getOwner() { return owner; }
+    public synchronized State getState() { return state; }
+    public synchronized boolean isActive() { return state == State.ACTIVE; }
+
+    public synchronized List<Seat> getSeats() {
+        return new ArrayList<>(seats);
+    }
+
+    // time left before the hold expires (zero when it is over)
+    public Duration getRemaining() {
+        if (!isActive()) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    @Override
+    public String toString() {
+        return holdId + " " + getState() + " " + owner + " " + getSeats();
+    }
+}
\ No newline at end of file
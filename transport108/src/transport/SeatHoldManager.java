@@ -0,0 +1,251 @@
+package transport;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puts seats on hold and lets the holds run out on time.
+ *
+ * Expiry uses a hashed timing wheel: a ring of buckets, one per tick (100ms by default).
+ * A new hold goes into the bucket of the tick it runs out in, with the number of full turns
+ * of the wheel still to wait. One thread moves one bucket forward every tick and only looks
+ * at the holds in that bucket, so there is no thread or task per hold and no scan over all of
+ * them - adding a hold is O(1) and every hold is looked at about once per turn of the wheel.
+ *
+ * New holds are handed to the wheel thread through a lock free queue, the buckets themselves
+ * are only touched by that thread. Confirmed/released holds are simply dropped when their
+ * bucket comes up.
+ *
+ * Hold time can be set as a system property: -Dtransport.hold.minutes=10
+ */
+public class SeatHoldManager {
+
+    public static final Duration DEFAULT_HOLD_TIME = Duration.ofMinutes(10);
+    private static final long DEFAULT_TICK_MILLIS = 100;
+    private static final int DEFAULT_WHEEL_SIZE = 512;   // 51.2s per turn with 100ms ticks
+
+    private final Duration holdTime;
+    private final long tickNanos;
+    private final List<List<SeatHold>> wheel;
+    private final int mask;
+    private final long startNanos;
+    private final Queue<SeatHold> newHolds = new ConcurrentLinkedQueue<>();
+    // the active holds, so a timetable reload can move them (see moveHolds)
+    private final Set<SeatHold> liveHolds = ConcurrentHashMap.newKeySet();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final AtomicLong holdNumber = new AtomicLong();
+    private final AtomicInteger activeHolds = new AtomicInteger();
+    private final AtomicLong expiredHolds = new AtomicLong();
+
+    public SeatHoldManager() {
+        this(Duration.ofMinutes(Long.getLong("transport.hold.minutes", DEFAULT_HOLD_TIME.toMinutes())),
+                DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    // wheelSize is rounded up to a power of two so the bucket is just (tick & mask)
+    public SeatHoldManager(Duration holdTime, long tickMillis, int wheelSize) {
+        if (holdTime.isNegative() || holdTime.isZero()) {
+            throw new IllegalArgumentException("Hold time must be positive, got " + holdTime);
+        }
+        if (tickMillis < 1 || wheelSize < 1) {
+            throw new IllegalArgumentException("Tick and wheel size must be at least 1");
+        }
+        this.holdTime = holdTime;
+        this.tickNanos = tickMillis * 1_000_000L;
+
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+
+        this.worker = new Thread(this::run, "seat-hold-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Holds all the seats (of one transport) for the default hold time, or none of them.
+     */
+    public SeatHold hold(Transport transport, List<Seat> seats, String owner) throws BookedSeatsException {
+        return hold(transport, seats, owner, holdTime);
+    }
+
+    public SeatHold hold(Transport transport, List<Seat> seats, String owner, Duration time)
+            throws BookedSeatsException {
+        if (!running) {
+            throw new IllegalStateException("Seat hold manager is shut down");
+        }
+        if (!transport.holdSeats(seats)) {
+            throw new BookedSeatsException("Sorry, seat(s) " + takenSeats(seats)
+                    + " were just taken by someone else. Please choose again.");
+        }
+
+        String holdId = "HD-" + holdNumber.incrementAndGet();
+        SeatHold hold = new SeatHold(holdId, transport, seats, owner, System.nanoTime() + time.toNanos());
+        activeHolds.incrementAndGet();
+        liveHolds.add(hold);
+        newHolds.add(hold);
+        return hold;
+    }
+
+    // adds one more seat to an active hold (manual seat picking), it runs out at the same time
+    public void addSeat(SeatHold hold, Seat seat) throws BookedSeatsException {
+        if (!seat.getTransport().sharesSeatsWith(hold.getTransport())) {
+            throw new IllegalArgumentException("Seat " + seat.getSeatNumber() + " is not on the held transport");
+        }
+        // the seat's own trip, it may be the version from before a reload (same seat bitmaps)
+        if (!seat.getTransport().holdSeats(List.of(seat))) {
+            throw new BookedSeatsException("Sorry, seat " + seat.getSeatNumber()
+                    + " was just taken by someone else. Please choose again.");
+        }
+        if (!hold.add(seat)) {
+            seat.getTransport().releaseHeldSeats(List.of(seat));
+            throw expired(hold);
+        }
+    }
+
+    /**
+     * Turns the hold into a booking. The seats stay taken the whole time, so nobody can get
+     * in between; if the hold already ran out a BookedSeatsException is thrown.
+     */
+    public Booking confirm(SeatHold hold, int passengerCount, String customerName, boolean isPremium)
+            throws BookedSeatsException {
+        // the wheel may be up to a tick late, the deadline is what counts
+        if (hold.isDue(System.nanoTime())) {
+            expire(hold);
+        }
+        if (!hold.finish(SeatHold.State.CONFIRMED)) {
+            throw expired(hold);
+        }
+        ended(hold);
+
+        // a finished hold is not moved anymore, so trip and seats stay together from here
+        List<Seat> seats = hold.getSeats();
+        Transport transport = hold.getTransport();
+        transport.confirmHeldSeats(seats);
+        return new Booking(transport, seats, passengerCount, customerName, isPremium, true);
+    }
+
+    /**
+     * Moves the active holds on changed trips to the new versions (timetable reload, see
+     * TimetableWatcher.Reload#getReplaced). The seats are shared, only the Transport changes,
+     * so a hold confirmed after the reload is booked with the new times and prices.
+     */
+    public void moveHolds(Map<Transport, Transport> replaced) {
+        for (SeatHold hold : liveHolds) {
+            Transport moved = replaced.get(hold.getTransport());
+            if (moved != null) {
+                hold.moveTo(moved);
+            }
+        }
+    }
+
+    // gives the seats back (customer changed their mind), nothing happens if the hold is already over
+    public void release(SeatHold hold) {
+        if (hold.finish(SeatHold.State.RELEASED)) {
+            ended(hold);
+            hold.getTransport().releaseHeldSeats(hold.getSeats());
+        }
+    }
+
+    private void expire(SeatHold hold) {
+        if (hold.finish(SeatHold.State.EXPIRED)) {
+            ended(hold);
+            expiredHolds.incrementAndGet();
+            hold.getTransport().releaseHeldSeats(hold.getSeats());
+        }
+    }
+
+    private void ended(SeatHold hold) {
+        activeHolds.decrementAndGet();
+        liveHolds.remove(hold);
+    }
+
+    private static BookedSeatsException expired(SeatHold hold) {
+        return new BookedSeatsException("Your seat hold " + hold.getHoldId() + " is over ("
+                + hold.getState().name().toLowerCase() + "), the seats were given back. Please choose again.");
+    }
+
+    private static String takenSeats(List<Seat> seats) {
+        List<String> taken = new ArrayList<>();
+        for (Seat seat : seats) {
+            if (seat.isOccupied()) {
+                taken.add(seat.getSeatNumber());
+            }
+        }
+        return String.join(", ", taken);
+    }
+
+    // the wheel thread: wait for the next tick, sort in the new holds, expire what is due
+    private void run() {
+        long tick = 0;
+        while (running) {
+            long tickEnd = startNanos + (tick + 1) * tickNanos;
+            long wait;
+            while (running && (wait = tickEnd - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+            if (!running) {
+                break;
+            }
+
+            addNewHolds(tick);
+            expireBucket(tick);
+            tick++;
+        }
+    }
+
+    private void addNewHolds(long currentTick) {
+        SeatHold hold;
+        while ((hold = newHolds.poll()) != null) {
+            if (!hold.isActive()) {
+                continue;
+            }
+            long dueTick = Math.max(0, (hold.getDeadlineNanos() - startNanos) / tickNanos);
+            hold.remainingRounds = (dueTick - currentTick) / wheel.size();
+            // already overdue holds go into the current bucket
+            wheel.get((int) (Math.max(dueTick, currentTick) & mask)).add(hold);
+        }
+    }
+
+    private void expireBucket(long tick) {
+        List<SeatHold> bucket = wheel.get((int) (tick & mask));
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            SeatHold hold = bucket.get(i);
+            if (!hold.isActive()) {
+                continue;
+            }
+            if (hold.remainingRounds <= 0) {
+                expire(hold);
+            } else {
+                hold.remainingRounds--;
+                bucket.set(kept++, hold);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    // stops the wheel thread, holds that are still active stay until confirmed/released
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    public Duration getHoldTime() { return holdTime; }
+    public int getActiveHolds() { return activeHolds.get(); }
+    public long getExpiredHolds() { return expiredHolds.get(); }
+}
\ No newline at end of file
@@ -0,0 +1,236 @@
+package transport;
+
+import java.util.*;
+
+/**
+ * The seat plan of one kind of vehicle: seat number, row, position, quality and class
+ * for every seat index. It never changes, so all trains share one layout, all buses another...
+ * A Transport only keeps its occupancy bitmap and makes Seat objects from the layout when asked.
+ */
+public class SeatLayout {
+
+    private final String name;
+    private final String[] seatNumbers;
+    private final int[] rows;
+    private final String[] positions;
+    private final String[] qualities;
+    private final boolean[] premium;
+
+    // seat letters of a row from left to right ("|" = aisle in the builder, e.g. "ABC|DEF")
+    private final String columnLetters;
+    private final int[] columns;        // column of every seat (0 = leftmost letter)
+    private final int[] segmentMasks;   // the columns between two aisles, one bit per column
+    private final int aisleAfterMask;   // bit c set = there is an aisle right after column c
+
+    // rows in layout order, the seats of a row are next to each other in the layout
+    private final int[] rowNumbers;
+    private final int[] rowFirstSeat;
+    private final int[] rowSize;
+    private final int[] premiumRowOrder;   // row positions of each class, best rows first
+    private final int[] standardRowOrder;
+
+    // seat indices in the order SeatAllocator hands them out, worked out once per layout
+    private final int[] premiumOrder;       // premium seats: best quality, front row, window first
+    private final int[] reservedGoodOrder;  // standard GOOD seats row by row (keeps groups together)
+    private final int[] reservedOrder;      // all standard seats row by row
+
+    private SeatLayout(Builder builder) {
+        int size = builder.seatNumbers.size();
+        this.name = builder.name;
+        this.seatNumbers = builder.seatNumbers.toArray(new String[0]);
+        this.positions = builder.positions.toArray(new String[0]);
+        this.qualities = builder.qualities.toArray(new String[0]);
+        this.rows = new int[size];
+        this.premium = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = builder.rows.get(i);
+            premium[i] = builder.premium.get(i);
+        }
+
+        // columns and aisles
+        this.columnLetters = builder.columns.replace("|", "");
+        List<Integer> segments = new ArrayList<>();
+        int segment = 0;
+        int aisles = 0;
+        int column = 0;
+        for (char c : builder.columns.toCharArray()) {
+            if (c == '|') {
+                segments.add(segment);
+                segment = 0;
+                aisles |= 1 << (column - 1);
+            } else {
+                segment |= 1 << column;
+                column++;
+            }
+        }
+        segments.add(segment);
+        this.segmentMasks = segments.stream().mapToInt(Integer::intValue).toArray();
+        this.aisleAfterMask = aisles;
+
+        this.columns = new int[size];
+        for (int i = 0; i < size; i++) {
+            String number = seatNumbers[i];
+            columns[i] = columnLetters.indexOf(number.charAt(number.length() - 1));
+            if (columns[i] < 0) {
+                throw new IllegalStateException("Seat " + number + " is not in the columns " + builder.columns);
+            }
+        }
+
+        // rows
+        List<Integer> firstSeats = new ArrayList<>();
+        Set<Integer> seenRows = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || rows[i] != rows[i - 1]) {
+                if (!seenRows.add(rows[i])) {
+                    throw new IllegalStateException("Seats of row " + rows[i] + " have to be added together");
+                }
+                firstSeats.add(i);
+            }
+        }
+        this.rowNumbers = new int[firstSeats.size()];
+        this.rowFirstSeat = new int[firstSeats.size()];
+        this.rowSize = new int[firstSeats.size()];
+        for (int r = 0; r < firstSeats.size(); r++) {
+            rowFirstSeat[r] = firstSeats.get(r);
+            rowNumbers[r] = rows[rowFirstSeat[r]];
+            rowSize[r] = (r + 1 < firstSeats.size() ? firstSeats.get(r + 1) : size) - rowFirstSeat[r];
+        }
+        this.premiumRowOrder = rankedRows(true);
+        this.standardRowOrder = rankedRows(false);
+
+        this.premiumOrder = rankedSeats(true, false, Comparator
+                .comparingInt((Integer i) -> qualityOrder(qualities[i]))
+                .thenComparingInt(i -> rows[i])
+                .thenComparingInt(i -> positionOrder(positions[i])));
+        this.reservedGoodOrder = rankedSeats(false, true, Comparator.comparingInt(i -> rows[i]));
+        this.reservedOrder = rankedSeats(false, false, Comparator.comparingInt(i -> rows[i]));
+    }
+
+    // seats of the class (optionally only GOOD ones) sorted by the ranking, ties keep the layout order
+    private int[] rankedSeats(boolean premiumClass, boolean goodOnly, Comparator<Integer> ranking) {
+        List<Integer> chosen = new ArrayList<>();
+        for (int i = 0; i < seatNumbers.length; i++) {
+            if (premium[i] == premiumClass && (!goodOnly || qualities[i].equals("GOOD"))) {
+                chosen.add(i);
+            }
+        }
+        chosen.sort(ranking);
+
+        int[] order = new int[chosen.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = chosen.get(i);
+        }
+        return order;
+    }
+
+    // rows of the class (judged by their first seat), best quality first then front to back
+    private int[] rankedRows(boolean premiumClass) {
+        List<Integer> chosen = new ArrayList<>();
+        for (int r = 0; r < rowNumbers.length; r++) {
+            if (premium[rowFirstSeat[r]] == premiumClass) {
+                chosen.add(r);
+            }
+        }
+        chosen.sort(Comparator.comparingInt((Integer r) -> qualityOrder(qualities[rowFirstSeat[r]]))
+                .thenComparingInt(r -> rowNumbers[r]));
+        return chosen.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Order by Quality
+    static int qualityOrder(String quality) {
+        switch (quality) {
+            case "EXCELLENT": return 0;
+            case "GOOD": return 1;
+            case "AVERAGE": return 2;
+            case "POOR": return 3;
+            default: return 4;
+        }
+    }
+
+    //Order of positions
+    static int positionOrder(String position) {
+        switch (position) {
+            case "WINDOW": return 0;
+            case "AISLE": return 1;
+            case "MIDDLE": return 2;
+            default: return 3;
+        }
+    }
+
+    public String getName() { return name; }
+    public int size() { return seatNumbers.length; }
+
+    public String getSeatNumber(int seat) { return seatNumbers[seat]; }
+    public int getRow(int seat) { return rows[seat]; }
+    public String getPosition(int seat) { return positions[seat]; }
+    public String getQuality(int seat) { return qualities[seat]; }
+    public boolean isPremium(int seat) { return premium[seat]; }
+
+    public int getColumn(int seat) { return columns[seat]; }
+    public String getColumnLetters() { return columnLetters; }
+    public int getColumnCount() { return columnLetters.length(); }
+
+    // true if the aisle is right after this column (e.g. after C in ABC|DEF)
+    public boolean hasAisleAfter(int column) {
+        return (aisleAfterMask & (1 << column)) != 0;
+    }
+
+    public int getRowCount() { return rowNumbers.length; }
+    public int getRowNumber(int rowPosition) { return rowNumbers[rowPosition]; }
+    public int getRowFirstSeat(int rowPosition) { return rowFirstSeat[rowPosition]; }
+    public int getRowSize(int rowPosition) { return rowSize[rowPosition]; }
+
+    // the precomputed orders are shared, callers must not change them
+    int[] getSegmentMasks() { return segmentMasks; }
+    int[] getRowOrder(boolean premiumClass) { return premiumClass ? premiumRowOrder : standardRowOrder; }
+    int[] getPremiumOrder() { return premiumOrder; }
+    int[] getReservedGoodOrder() { return reservedGoodOrder; }
+    int[] getReservedOrder() { return reservedOrder; }
+
+    // index of the seat with that number (e.g. "12C"), -1 if there is none
+    public int indexOf(String seatNumber) {
+        for (int i = 0; i < seatNumbers.length; i++) {
+            if (seatNumbers[i].equalsIgnoreCase(seatNumber)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + size() + " seats)";
+    }
+
+    /**
+     * Used by Train/Bus/Flight to describe their seats once, row by row.
+     * columns are the seat letters of a row from left to right with "|" for the aisles.
+     */
+    public static class Builder {
+        private final String name;
+        private final String columns;
+        private final List<String> seatNumbers = new ArrayList<>();
+        private final List<Integer> rows = new ArrayList<>();
+        private final List<String> positions = new ArrayList<>();
+        private final List<String> qualities = new ArrayList<>();
+        private final List<Boolean> premium = new ArrayList<>();
+
+        public Builder(String name, String columns) {
+            this.name = name;
+            this.columns = columns;
+        }
+
+        public Builder seat(int row, String letter, String position, boolean isPremium, String quality) {
+            seatNumbers.add(row + letter);
+            rows.add(row);
+            positions.add(position);
+            premium.add(isPremium);
+            qualities.add(quality);
+            return this;
+        }
+
+        public SeatLayout build() {
+            return new SeatLayout(this);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package transport;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Draws the seat map of a transport (one class at a time).
+ *
+ * Everything except the seat marks is the same for every trip with the same layout, so the
+ * whole map (header, rows, seat letters, aisles, qualities) is built once per layout and class
+ * and kept as a char template together with the positions of the marks. Drawing a trip is then
+ * copying the template, putting X/H/space into those positions and writing it out in one go.
+ *
+ * PLAIN is the normal console output, ANSI colours the seats (free green, taken red, held yellow)
+ * for terminals that can show colours. render() gives the map as a String for other clients.
+ * The console default can be switched with -Dtransport.seatmap.ansi=true
+ */
+public class SeatMapRenderer {
+
+    public enum Style { PLAIN, ANSI }
+
+    private static final String RESET = "\u001B[0m";
+    // all colour codes have the same length, so the template can keep a slot for one
+    private static final char RED = '1';
+    private static final char GREEN = '2';
+    private static final char YELLOW = '3';
+
+    // [premium][style] templates per layout, layouts are shared so this stays tiny
+    private static final Map<SeatLayout, Template[]> templates = new ConcurrentHashMap<>();
+
+    private static final Style consoleStyle = Boolean.getBoolean("transport.seatmap.ansi") ? Style.ANSI : Style.PLAIN;
+
+    // the map as a string
+    public static String render(Transport transport, boolean premium, Style style) {
+        return new String(fill(transport, premium, style));
+    }
+
+    // writes the whole map with a single write (the console style)
+    public static void print(Transport transport, boolean premium, PrintStream out) {
+        print(transport, premium, consoleStyle, out);
+    }
+
+    public static void print(Transport transport, boolean premium, Style style, PrintStream out) {
+        out.print(fill(transport, premium, style));
+        out.flush();
+    }
+
+    private static char[] fill(Transport transport, boolean premium, Style style) {
+        Template template = template(transport.getLayout(), premium, style);
+        char[] map = template.text.clone();
+        for (int i = 0; i < template.seats.length; i++) {
+            int seat = template.seats[i];
+            char mark;
+            char colour;
+            if (transport.isSeatHeld(seat)) {
+                mark = 'H';
+                colour = YELLOW;
+            } else if (transport.isSeatOccupied(seat)) {
+                mark = 'X';
+                colour = RED;
+            } else {
+                mark = ' ';
+                colour = GREEN;
+            }
+            map[template.markAt[i]] = mark;
+            if (style == Style.ANSI) {
+                map[template.colourAt[i]] = colour;
+            }
+        }
+        return map;
+    }
+
+    private static Template template(SeatLayout layout, boolean premium, Style style) {
+        Template[] forLayout = templates.computeIfAbsent(layout, l -> new Template[4]);
+        int slot = (premium ? 2 : 0) + style.ordinal();
+        Template template = forLayout[slot];
+        if (template == null) {
+            // two threads may both build it, they build the same thing
+            template = buildTemplate(layout, premium, style);
+            forLayout[slot] = template;
+        }
+        return template;
+    }
+
+    private static Template buildTemplate(SeatLayout layout, boolean premium, Style style) {
+        StringBuilder text = new StringBuilder();
+        text.append("\n╔═══════════════════════════════════════════════════════════╗\n");
+        if (premium) {
+            text.append("║           PREMIUM/1ST CLASS SEAT-MAP                      ║\n");
+        } else {
+            text.append("║            STANDARD/2ND CLASS SEAT-MAP                    ║\n");
+        }
+        text.append("╠═══════════════════════════════════════════════════════════╣\n");
+        text.append("║    [X] = Occupied   [H] = On hold   [ ] = Available       ║\n");
+        text.append("║                                                           ║\n");
+        text.append("║                WINDOW | MIDDLE | AISLE                    ║\n");
+        text.append("╚═══════════════════════════════════════════════════════════╝\n\n");
+
+        // rows of the class front to back
+        List<Integer> rows = new ArrayList<>();
+        for (int r = 0; r < layout.getRowCount(); r++) {
+            if (layout.isPremium(layout.getRowFirstSeat(r)) == premium && layout.getRowNumber(r) > 0) {
+                rows.add(r);
+            }
+        }
+        rows.sort(Comparator.comparingInt(layout::getRowNumber));
+
+        List<Integer> seats = new ArrayList<>();
+        List<Integer> markAt = new ArrayList<>();
+        List<Integer> colourAt = new ArrayList<>();
+        for (int r : rows) {
+            text.append(String.format("Row %2d:  ", layout.getRowNumber(r)));
+
+            // seats of the row left to right
+            int first = layout.getRowFirstSeat(r);
+            Integer[] rowSeats = new Integer[layout.getRowSize(r)];
+            for (int i = 0; i < rowSeats.length; i++) {
+                rowSeats[i] = first + i;
+            }
+            Arrays.sort(rowSeats, Comparator.comparingInt(layout::getColumn));
+
+            int previousColumn = -1;
+            for (int seat : rowSeats) {
+                // aisle between this seat and the one before (also if seats next to it are missing)
+                int column = layout.getColumn(seat);
+                if (previousColumn >= 0) {
+                    for (int c = previousColumn; c < column; c++) {
+                        if (layout.hasAisleAfter(c)) {
+                            text.append("    |    ");
+                        }
+                    }
+                }
+                previousColumn = column;
+
+                if (style == Style.ANSI) {
+                    text.append("\u001B[3");
+                    colourAt.add(text.length());
+                    text.append(GREEN).append('m');
+                }
+                text.append('[');
+                markAt.add(text.length());
+                text.append(' ').append(']');
+                if (style == Style.ANSI) {
+                    text.append(RESET);
+                }
+                seats.add(seat);
+
+                text.append(layout.getColumnLetters().charAt(column)).append(' ');
+            }
+            text.append("  (").append(layout.getQuality(first)).append(")\n");
+        }
+        text.append('\n');
+
+        return new Template(text.toString().toCharArray(), toArray(seats), toArray(markAt), toArray(colourAt));
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // the finished map with empty marks, and where the mark (and colour) of every seat goes
+    private static final class Template {
+        final char[] text;
+        final int[] seats;
+        final int[] markAt;
+        final int[] colourAt;
+
+        Template(char[] text, int[] seats, int[] markAt, int[] colourAt) {
+            this.text = text;
+            this.seats = seats;
+            this.markAt = markAt;
+            this.colourAt = colourAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,94 @@
+package transport;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Which seats of one transport are taken, one bit per seat (64 seats per long).
+ * Seats are claimed with compare-and-set, so two threads can never both get the
+ * same seat and no lock is needed. claimAll() takes a group of seats all or nothing.
+ */
+public class SeatOccupancy {
+
+    private final AtomicLongArray words;
+    private final int size;
+
+    public SeatOccupancy(int seats) {
+        this.size = seats;
+        this.words = new AtomicLongArray((seats + 63) / 64);
+    }
+
+    public boolean isOccupied(int seat) {
+        return (words.get(seat >>> 6) & bit(seat)) != 0;
+    }
+
+    // taken/free state of count seats (max 64) starting at from, bit 0 = seat from
+    public long bits(int from, int count) {
+        int w = from >>> 6;
+        int shift = from & 63;
+        long value = words.get(w) >>> shift;
+        if (shift != 0 && shift + count > 64 && w + 1 < words.length()) {
+            value |= words.get(w + 1) << (64 - shift);
+        }
+        return count == 64 ? value : value & ((1L << count) - 1);
+    }
+
+    // true if we got the seat, false if somebody else has it already
+    public boolean claim(int seat) {
+        checkIndex(seat);
+        int w = seat >>> 6;
+        long mask = bit(seat);
+        while (true) {
+            long current = words.get(w);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(w, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    // true if the seat was taken and is free now
+    public boolean release(int seat) {
+        checkIndex(seat);
+        int w = seat >>> 6;
+        long mask = bit(seat);
+        while (true) {
+            long current = words.get(w);
+            if ((current & mask) == 0) {
+                return false;
+            }
+            if (words.compareAndSet(w, current, current & ~mask)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Claims all the seats or none of them: if one is already taken
+     * the ones we got so far are given back and false is returned.
+     */
+    public boolean claimAll(int[] seats) {
+        for (int i = 0; i < seats.length; i++) {
+            if (!claim(seats[i])) {
+                for (int j = 0; j < i; j++) {
+                    release(seats[j]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() { return size; }
+
+    private static long bit(int seat) {
+        return 1L << (seat & 63);
+    }
+
+    private void checkIndex(int seat) {
+        if (seat < 0 || seat >= size) {
+            throw new IndexOutOfBoundsException("Seat index " + seat + " out of range 0-" + (size - 1));
+        }
+    }
+}
\ No newline at end of file
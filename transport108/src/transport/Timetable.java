@@ -0,0 +1,34 @@
+package transport;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The loaded trips plus which data file each of them came from.
+ *
+ * The trips are in file order, so a file is just a range of the list: the trips of file i are
+ * getTrips()[getStart(i), getEnd(i)). The TimetableWatcher needs that to see which trips were
+ * deleted from a changed file, the TimetableSnapshot keeps it so a fast start has it as well.
+ * File paths are relative to the transport files folder.
+ */
+public class Timetable {
+
+    private final List<Transport> trips;
+    private final List<Path> files;
+    private final int[] ends;
+
+    Timetable(List<Transport> trips, List<Path> files, int[] ends) {
+        if (files.size() != ends.length) {
+            throw new IllegalArgumentException(files.size() + " files but " + ends.length + " ranges");
+        }
+        this.trips = trips;
+        this.files = files;
+        this.ends = ends;
+    }
+
+    public List<Transport> getTrips() { return trips; }
+    public int getFileCount() { return files.size(); }
+    public Path getFile(int file) { return files.get(file); }
+    public int getStart(int file) { return file == 0 ? 0 : ends[file - 1]; }
+    public int getEnd(int file) { return ends[file]; }
+}
\ No newline at end of file
@@ -0,0 +1,426 @@
+package transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+/**
+ * The loaded timetable saved as one binary file, so the next start doesn't have to parse
+ * all the text files again.
+ *
+ * Layout (big endian), column by column so every field is one fixed-width array:
+ *   header    magic "TTSN", version, source stamp (newest file time, file count, total bytes,
+ *             occupancy settings), trip count
+ *   strings   every id, city, extra info and file name once (length + UTF-8), the rest refers to them by number
+ *   files     the data files the trips came from: file count, then per file its name (string number)
+ *             and where its trips end, the trips are in file order (see Timetable)
+ *   columns   type (byte), id, departure, arrival, extra info (string numbers), date (epoch day),
+ *             departure/arrival time (second of the day, int), standard/premium price (double),
+ *             first occupancy word (int)
+ *   seats     the occupancy bitmaps of all trips, 64 seats per long
+ *   trailer   CRC32 of everything before it
+ *
+ * open() maps the file with a FileChannel and checks version, checksum and the source stamp.
+ * The Transport objects are only made when a trip is first asked for, straight from the columns.
+ */
+public class TimetableSnapshot {
+
+    private static final int MAGIC = 0x5454534E; // "TTSN"
+    static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 8 + 4 + 4;
+
+    private static final byte TRAIN = 0;
+    private static final byte BUS = 1;
+    private static final byte FLIGHT = 2;
+
+    /**
+     * What the snapshot was made from. If any of it changed (a file was edited, added
+     * or removed, or the seats are simulated differently) the snapshot is out of date.
+     */
+    public static class SourceStamp {
+        final long newestModified;
+        final int fileCount;
+        final long totalBytes;
+        final int occupancySettings;
+
+        public SourceStamp(long newestModified, int fileCount, long totalBytes, int occupancySettings) {
+            this.newestModified = newestModified;
+            this.fileCount = fileCount;
+            this.totalBytes = totalBytes;
+            this.occupancySettings = occupancySettings;
+        }
+
+        boolean sameAs(SourceStamp other) {
+            return newestModified == other.newestModified && fileCount == other.fileCount
+                    && totalBytes == other.totalBytes && occupancySettings == other.occupancySettings;
+        }
+    }
+
+    /**
+     * Saves the trips (including which seats are taken right now) and which file they came from.
+     * Written to a temp file first and then moved over the old snapshot, so a crash never leaves
+     * half a snapshot.
+     */
+    public static void write(Path file, Timetable timetable, SourceStamp stamp) throws IOException {
+        List<Transport> trips = timetable.getTrips();
+        int n = trips.size();
+        int fileCount = timetable.getFileCount();
+
+        // string table
+        Map<String, Integer> stringNumbers = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[][] stringColumns = new int[4][n];
+        int stringBytes = 4;
+        int occupancyWords = 0;
+        for (int i = 0; i < n; i++) {
+            Transport t = trips.get(i);
+            String[] values = {t.getId(), t.getDeparture(), t.getArrival(), t.getAddInfo()};
+            for (int c = 0; c < values.length; c++) {
+                Integer number = stringNumbers.get(values[c]);
+                if (number == null) {
+                    number = strings.size();
+                    stringNumbers.put(values[c], number);
+                    byte[] bytes = values[c].getBytes(StandardCharsets.UTF_8);
+                    strings.add(bytes);
+                    stringBytes += 4 + bytes.length;
+                }
+                stringColumns[c][i] = number;
+            }
+            occupancyWords += words(t.getTotalSeats());
+        }
+        int[] fileNames = new int[fileCount];
+        for (int f = 0; f < fileCount; f++) {
+            String name = timetable.getFile(f).toString();
+            Integer number = stringNumbers.get(name);
+            if (number == null) {
+                number = strings.size();
+                stringNumbers.put(name, number);
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                strings.add(bytes);
+                stringBytes += 4 + bytes.length;
+            }
+            fileNames[f] = number;
+        }
+
+        long size = HEADER_SIZE + stringBytes + 4 + 8L * fileCount
+                + (long) n * (1 + 4 * 4 + 4 + 4 + 4 + 8 + 8 + 4)
+                + 8L * occupancyWords + 8;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Timetable too big for a snapshot (" + size + " bytes)");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putLong(stamp.newestModified).putInt(stamp.fileCount).putLong(stamp.totalBytes)
+                .putInt(stamp.occupancySettings);
+        buffer.putInt(n);
+
+        buffer.putInt(strings.size());
+        for (byte[] bytes : strings) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        buffer.putInt(fileCount);
+        for (int f = 0; f < fileCount; f++) {
+            buffer.putInt(fileNames[f]).putInt(timetable.getEnd(f));
+        }
+
+        for (Transport t : trips) {
+            buffer.put(typeCode(t.getType()));
+        }
+        for (int[] column : stringColumns) {
+            for (int number : column) {
+                buffer.putInt(number);
+            }
+        }
+        for (Transport t : trips) {
+            buffer.putInt((int) t.getDate().toEpochDay());
+        }
+        for (Transport t : trips) {
+            buffer.putInt(t.getDepartureTime().toSecondOfDay());
+        }
+        for (Transport t : trips) {
+            buffer.putInt(t.getArrivalTime().toSecondOfDay());
+        }
+        for (Transport t : trips) {
+            buffer.putDouble(t.getStandardPrice());
+        }
+        for (Transport t : trips) {
+            buffer.putDouble(t.getPremiumPrice());
+        }
+        int word = 0;
+        for (Transport t : trips) {
+            buffer.putInt(word);
+            word += words(t.getTotalSeats());
+        }
+        for (Transport t : trips) {
+            for (int seat = 0; seat < t.getTotalSeats(); seat += 64) {
+                buffer.putLong(t.occupiedBits(seat, Math.min(64, t.getTotalSeats() - seat)));
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The trips of the snapshot and their files, or null if there is no usable snapshot: missing,
+     * another version, broken (checksum) or made from other source files than `stamp` describes.
+     */
+    public static Timetable open(Path file, SourceStamp stamp) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) < HEADER_SIZE + 8) {
+            return null;
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return null;
+        }
+        SourceStamp saved = new SourceStamp(buffer.getLong(8), buffer.getInt(16), buffer.getLong(20), buffer.getInt(28));
+        if (!saved.sameAs(stamp)) {
+            return null;
+        }
+
+        int end = buffer.capacity() - 8;
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.position(0).limit(end);
+        crc.update(content);
+        if (crc.getValue() != buffer.getLong(end)) {
+            System.err.println("⚠️ Snapshot " + file + " is damaged (checksum), reading the text files instead");
+            return null;
+        }
+
+        SnapshotTrips trips = new SnapshotTrips(buffer);
+        return new Timetable(trips, trips.files, trips.fileEnds);
+    }
+
+    /**
+     * Finds the trips of a timetable by ID and date, see lookup().
+     */
+    public interface TripLookup {
+        Transport find(String id, long epochDay);
+    }
+
+    /**
+     * A TripLookup for the trips. On the trips of a snapshot it works on the id and date columns,
+     * so only the trips that are found get made (the journal replay at startup only needs the
+     * booked ones). Any other list is put into a map once. Same ID and date twice: the later one wins.
+     */
+    public static TripLookup lookup(List<Transport> trips) {
+        if (trips instanceof SnapshotTrips) {
+            return ((SnapshotTrips) trips)::find;
+        }
+        Map<String, Transport> byKey = new HashMap<>();
+        for (Transport t : trips) {
+            byKey.put(t.getId() + "|" + t.getDate().toEpochDay(), t);
+        }
+        return (id, epochDay) -> byKey.get(id + "|" + epochDay);
+    }
+
+    private static int words(int seats) {
+        return (seats + 63) / 64;
+    }
+
+    private static byte typeCode(String type) {
+        switch (type) {
+            case "TRAIN": return TRAIN;
+            case "BUS": return BUS;
+            case "FLIGHT": return FLIGHT;
+            default: throw new IllegalArgumentException("Unknown transport type: " + type);
+        }
+    }
+
+    /**
+     * The trips of a mapped snapshot. A Transport is made from the columns the first time
+     * it is asked for and then kept, so everybody gets the same object (and the same seats).
+     */
+    private static final class SnapshotTrips extends AbstractList<Transport> implements RandomAccess {
+        private final ByteBuffer data;
+        private final String[] strings;
+        private final int size;
+        private final AtomicReferenceArray<Transport> made;
+
+        // for find(), made on the first call: the trips with id string number n are
+        // tripsOfId[idStart[n]] .. tripsOfId[idStart[n + 1] - 1]
+        private Map<String, Integer> stringNumbers;
+        private int[] idStart;
+        private int[] tripsOfId;
+        private final List<Path> files;
+        private final int[] fileEnds;
+
+        // where each column starts
+        private final int types;
+        private final int ids;
+        private final int departures;
+        private final int arrivals;
+        private final int infos;
+        private final int dates;
+        private final int departureTimes;
+        private final int arrivalTimes;
+        private final int standardPrices;
+        private final int premiumPrices;
+        private final int firstWords;
+        private final int seatWords;
+
+        SnapshotTrips(ByteBuffer data) {
+            this.data = data;
+            this.size = data.getInt(HEADER_SIZE - 4);
+
+            int pos = HEADER_SIZE;
+            this.strings = new String[data.getInt(pos)];
+            pos += 4;
+            for (int i = 0; i < strings.length; i++) {
+                int length = data.getInt(pos);
+                byte[] bytes = new byte[length];
+                data.get(pos + 4, bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                pos += 4 + length;
+            }
+
+            int fileCount = data.getInt(pos);
+            pos += 4;
+            this.files = new ArrayList<>(fileCount);
+            this.fileEnds = new int[fileCount];
+            for (int f = 0; f < fileCount; f++) {
+                files.add(Paths.get(strings[data.getInt(pos)]));
+                fileEnds[f] = data.getInt(pos + 4);
+                pos += 8;
+            }
+
+            types = pos;
+            ids = types + size;
+            departures = ids + 4 * size;
+            arrivals = departures + 4 * size;
+            infos = arrivals + 4 * size;
+            dates = infos + 4 * size;
+            departureTimes = dates + 4 * size;
+            arrivalTimes = departureTimes + 4 * size;
+            standardPrices = arrivalTimes + 4 * size;
+            premiumPrices = standardPrices + 8 * size;
+            firstWords = premiumPrices + 8 * size;
+            seatWords = firstWords + 4 * size;
+
+            this.made = new AtomicReferenceArray<>(size);
+        }
+
+        @Override
+        public Transport get(int index) {
+            Transport t = made.get(index);
+            if (t == null) {
+                Transport fresh = build(index);
+                // if another thread was faster its object wins
+                t = made.compareAndSet(index, null, fresh) ? fresh : made.get(index);
+            }
+            return t;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        synchronized Transport find(String id, long epochDay) {
+            if (idStart == null) {
+                indexIds();
+            }
+            Integer number = stringNumbers.get(id);
+            if (number == null) {
+                return null;
+            }
+            int found = -1;
+            for (int k = idStart[number]; k < idStart[number + 1]; k++) {
+                int trip = tripsOfId[k];
+                if (data.getInt(dates + 4 * trip) == epochDay) {
+                    found = trip;
+                }
+            }
+            return found < 0 ? null : get(found);
+        }
+
+        // groups the trip numbers by id (counting sort over the id column), no Transport is made
+        private void indexIds() {
+            stringNumbers = new HashMap<>(strings.length * 2);
+            for (int n = 0; n < strings.length; n++) {
+                stringNumbers.put(strings[n], n);
+            }
+            int[] start = new int[strings.length + 1];
+            for (int i = 0; i < size; i++) {
+                start[data.getInt(ids + 4 * i) + 1]++;
+            }
+            for (int n = 0; n < strings.length; n++) {
+                start[n + 1] += start[n];
+            }
+            int[] next = Arrays.copyOf(start, strings.length);
+            tripsOfId = new int[size];
+            for (int i = 0; i < size; i++) {
+                tripsOfId[next[data.getInt(ids + 4 * i)]++] = i;
+            }
+            idStart = start;
+        }
+
+        private Transport build(int i) {
+            String id = strings[data.getInt(ids + 4 * i)];
+            String departure = strings[data.getInt(departures + 4 * i)];
+            String arrival = strings[data.getInt(arrivals + 4 * i)];
+            String info = strings[data.getInt(infos + 4 * i)];
+            LocalDate date = LocalDate.ofEpochDay(data.getInt(dates + 4 * i));
+            LocalTime departureTime = LocalTime.ofSecondOfDay(data.getInt(departureTimes + 4 * i));
+            LocalTime arrivalTime = LocalTime.ofSecondOfDay(data.getInt(arrivalTimes + 4 * i));
+            double standardPrice = data.getDouble(standardPrices + 8 * i);
+            double premiumPrice = data.getDouble(premiumPrices + 8 * i);
+
+            Transport t;
+            switch (data.get(types + i)) {
+                case TRAIN:
+                    t = new Train(id, departure, arrival, date, departureTime, arrivalTime,
+                            standardPrice, premiumPrice, info);
+                    break;
+                case BUS:
+                    t = new Bus(id, departure, arrival, date, departureTime, arrivalTime,
+                            standardPrice, premiumPrice, info);
+                    break;
+                default:
+                    t = new Flight(id, departure, arrival, date, departureTime, arrivalTime,
+                            standardPrice, premiumPrice, info);
+            }
+
+            // taken seats from the bitmap
+            int word = seatWords + 8 * data.getInt(firstWords + 4 * i);
+            for (int seat = 0; seat < t.getTotalSeats(); seat += 64) {
+                long bits = data.getLong(word);
+                while (bits != 0) {
+                    t.claimSeat(seat + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+                word += 8;
+            }
+            return t;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,368 @@
+package transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the transport files folder (and its subfolders) and puts changed timetables live
+ * without a restart.
+ *
+ * Only the files that changed are parsed again. Their trips are compared with the live ones by
+ * ID + date:
+ *   added      new trip, gets simulated occupancy like the loaded ones
+ *   removed    no file has it anymore
+ *   retimed / repriced / changed (route, extra info)
+ *              a new Transport that shares the seats of the old one (Transport.shareSeatsWith),
+ *              so bookings and holds stay as they are
+ * Trips that did not change stay the same objects with their seats and bookings. A trip that
+ * changed its type gets another seat layout, so it is removed and added.
+ *
+ * The new trip list goes to the onReload listener in one Reload, which builds the new indexes
+ * next to the old ones and then swaps them in (searches don't wait, see TripSearcher.reload).
+ * Editors save in several steps, so a reload only starts once the folder was quiet for 500ms.
+ *
+ * The folder is watched from the constructor on, before the files are loaded, and changes are
+ * handled once start() gets the loaded Timetable. Which trip came from which file is taken from
+ * the Timetable (nothing is parsed twice) the first time something changes.
+ */
+public class TimetableWatcher implements Closeable {
+
+    private static final long QUIET_MILLIS = 500;
+
+    /**
+     * What one reload changed. getReplaced() maps the old version of every changed trip to the
+     * new one (bookings can be moved over, the seats are shared anyway).
+     */
+    public static class Reload {
+        private final List<Transport> transports;
+        private final Map<Transport, Transport> replaced;
+        private final int added;
+        private final int removed;
+        private final int retimed;
+        private final int repriced;
+        private final int changed;
+
+        Reload(List<Transport> transports, Map<Transport, Transport> replaced,
+               int added, int removed, int retimed, int repriced, int changed) {
+            this.transports = transports;
+            this.replaced = replaced;
+            this.added = added;
+            this.removed = removed;
+            this.retimed = retimed;
+            this.repriced = repriced;
+            this.changed = changed;
+        }
+
+        public List<Transport> getTransports() { return transports; }
+        public Map<Transport, Transport> getReplaced() { return replaced; }
+        public int getAdded() { return added; }
+        public int getRemoved() { return removed; }
+        public int getRetimed() { return retimed; }
+        public int getRepriced() { return repriced; }
+        public int getChanged() { return changed; }
+
+        @Override
+        public String toString() {
+            return String.format("%d added, %d removed, %d retimed, %d repriced, %d other changes",
+                    added, removed, retimed, repriced, changed);
+        }
+    }
+
+    private final Path folder;
+    private final OccupancySimulator occupancy;
+    private final WatchService watchService;
+    private Consumer<Reload> onReload;
+    private Thread worker;
+    private volatile boolean running = true;
+    private volatile long reloads;
+
+    // only used by the watcher thread
+    private final Map<WatchKey, Path> watchedFolders = new HashMap<>();
+    private final Map<Path, Set<String>> tripsByFile = new HashMap<>();
+    private Timetable loaded;
+    private List<Transport> current;
+    private final Map<String, Transport> byKey = new HashMap<>();
+
+    /**
+     * Watches the folder from now on. Changes made until start() wait in the WatchService.
+     */
+    public TimetableWatcher(Path folder, OccupancySimulator occupancy) throws IOException {
+        this.folder = folder.toAbsolutePath().normalize();
+        this.occupancy = occupancy;
+        this.watchService = this.folder.getFileSystem().newWatchService();
+        registerAll(this.folder);
+    }
+
+    /**
+     * Starts handling changes to the timetable that was loaded after the constructor,
+     * reloads go to onReload.
+     */
+    public synchronized void start(Timetable timetable, Consumer<Reload> onReload) {
+        if (worker != null) {
+            throw new IllegalStateException("Timetable watcher already started");
+        }
+        this.loaded = timetable;
+        this.current = timetable.getTrips();
+        this.onReload = onReload;
+        this.worker = new Thread(this::run, "timetable-watcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                WatchKey key = watchService.take();
+                // only now, a snapshot start doesn't have to make every trip for nothing
+                indexLoaded();
+                Set<Path> changed = new TreeSet<>();
+                collect(key, changed);
+                WatchKey more;
+                while ((more = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(more, changed);
+                }
+                if (!changed.isEmpty()) {
+                    try {
+                        reload(changed);
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("⚠️ Could not reload the timetable: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        } catch (IOException e) {
+            System.err.println("⚠️ Timetable watcher stopped: " + e.getMessage());
+        }
+    }
+
+    // the trips by key and the keys of every file, from the ranges of the loaded timetable
+    private void indexLoaded() {
+        if (loaded == null) {
+            return;
+        }
+        List<Transport> trips = loaded.getTrips();
+        int duplicates = 0;
+        for (Transport t : trips) {
+            if (byKey.put(key(t), t) != null) {
+                duplicates++;
+            }
+        }
+        if (duplicates > 0) {
+            // same as the BookingJournal, a trip is its ID + date
+            System.err.println("⚠️ " + duplicates + " trips have the same ID and date as another one,"
+                    + " a reload can't tell them apart");
+        }
+        for (int file = 0; file < loaded.getFileCount(); file++) {
+            Path path = folder.resolve(loaded.getFile(file)).normalize();
+            tripsByFile.put(path, keys(trips.subList(loaded.getStart(file), loaded.getEnd(file))));
+        }
+        loaded = null;
+    }
+
+    // the data files an event batch is about (new folders are watched as well from now on)
+    private void collect(WatchKey key, Set<Path> changed) throws IOException {
+        Path dir = watchedFolders.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || dir == null) {
+                // too many changes at once, look at everything
+                changed.addAll(tripsByFile.keySet());
+                changed.addAll(dataFiles(folder));
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (Files.isDirectory(path)) {
+                if (event.kind() == ENTRY_CREATE) {
+                    registerAll(path);
+                    changed.addAll(dataFiles(path));
+                }
+            } else if (hasDataName(path)) {
+                changed.add(path);
+            } else if (event.kind() == ENTRY_DELETE) {
+                // maybe a whole folder went away
+                for (Path known : tripsByFile.keySet()) {
+                    if (known.startsWith(path)) {
+                        changed.add(known);
+                    }
+                }
+            }
+        }
+        if (!key.reset()) {
+            watchedFolders.remove(key);
+        }
+    }
+
+    private void reload(Set<Path> changedFiles) throws IOException {
+        long start = System.nanoTime();
+
+        // parse the changed files again, remember what they had before
+        Set<String> before = new HashSet<>();
+        Map<String, Transport> parsed = new LinkedHashMap<>();
+        for (Path file : changedFiles) {
+            Set<String> old = tripsByFile.remove(file);
+            if (old != null) {
+                before.addAll(old);
+            }
+            if (DatabaseManager.isDataFile(file.toFile())) {
+                List<Transport> trips = DatabaseManager.loadFile(file.toFile());
+                for (Transport t : trips) {
+                    parsed.put(key(t), t);
+                }
+                tripsByFile.put(file, keys(trips));
+            }
+        }
+
+        Map<Transport, Transport> replaced = new IdentityHashMap<>();
+        Set<Transport> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Transport> added = new ArrayList<>();
+        int retimed = 0;
+        int repriced = 0;
+        int changed = 0;
+        int typeChanges = 0;
+
+        for (Map.Entry<String, Transport> entry : parsed.entrySet()) {
+            Transport old = byKey.get(entry.getKey());
+            Transport fresh = entry.getValue();
+            if (old == null || !old.getType().equals(fresh.getType())) {
+                if (old != null) {
+                    // another seat layout, so the old trip goes
+                    removed.add(old);
+                    typeChanges++;
+                }
+                occupancy.occupy(fresh);
+                added.add(fresh);
+                continue;
+            }
+
+            boolean newTimes = !old.getDepartureTime().equals(fresh.getDepartureTime())
+                    || !old.getArrivalTime().equals(fresh.getArrivalTime());
+            boolean newPrices = old.getStandardPrice() != fresh.getStandardPrice()
+                    || old.getPremiumPrice() != fresh.getPremiumPrice();
+            boolean other = old.getRouteKey() != fresh.getRouteKey() || !old.getAddInfo().equals(fresh.getAddInfo());
+            if (!newTimes && !newPrices && !other) {
+                continue;   // same trip, keeps its object
+            }
+            if (newTimes) {
+                retimed++;
+            } else if (newPrices) {
+                repriced++;
+            } else {
+                changed++;
+            }
+            fresh.shareSeatsWith(old);
+            replaced.put(old, fresh);
+        }
+
+        // gone from the changed files and not in any other file either
+        for (String key : before) {
+            if (!parsed.containsKey(key) && !inOtherFile(key) && byKey.containsKey(key)) {
+                removed.add(byKey.get(key));
+            }
+        }
+
+        if (added.isEmpty() && removed.isEmpty() && replaced.isEmpty()) {
+            return;
+        }
+
+        // the new list in the old order, new trips at the end
+        List<Transport> next = new ArrayList<>(current.size() + added.size());
+        for (Transport t : current) {
+            if (removed.contains(t)) {
+                continue;
+            }
+            Transport update = replaced.get(t);
+            next.add(update != null ? update : t);
+        }
+        next.addAll(added);
+
+        // a trip whose type changed is in both lists, it is counted as a change
+        Reload reload = new Reload(Collections.unmodifiableList(next), replaced,
+                added.size() - typeChanges, removed.size() - typeChanges,
+                retimed, repriced, changed + typeChanges);
+        onReload.accept(reload);
+
+        current = next;
+        for (Transport t : removed) {
+            byKey.remove(key(t));
+        }
+        for (Transport t : replaced.values()) {
+            byKey.put(key(t), t);
+        }
+        for (Transport t : added) {
+            byKey.put(key(t), t);
+        }
+        reloads++;
+
+        System.out.printf("%n🔄 Timetable reloaded (%d file/s): %s, %d trips now, took %.0f ms%n",
+                changedFiles.size(), reload, next.size(), (System.nanoTime() - start) / 1e6);
+    }
+
+    private boolean inOtherFile(String key) {
+        for (Set<String> keys : tripsByFile.values()) {
+            if (keys.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void registerAll(Path start) throws IOException {
+        try (Stream<Path> folders = Files.walk(start)) {
+            for (Path dir : (Iterable<Path>) folders.filter(Files::isDirectory)::iterator) {
+                WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                watchedFolders.put(key, dir);
+            }
+        }
+    }
+
+    private static List<Path> dataFiles(Path start) throws IOException {
+        try (Stream<Path> files = Files.walk(start)) {
+            List<Path> found = new ArrayList<>();
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (DatabaseManager.isDataFile(file.toFile())) {
+                    found.add(file);
+                }
+            }
+            return found;
+        }
+    }
+
+    private static boolean hasDataName(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".txt") || name.endsWith(".csv");
+    }
+
+    private static Set<String> keys(List<Transport> trips) {
+        Set<String> keys = new HashSet<>();
+        for (Transport t : trips) {
+            keys.add(key(t));
+        }
+        return keys;
+    }
+
+    // trips are told apart by ID and date (the same ID runs every day)
+    private static String key(Transport t) {
+        return t.getId() + "|" + t.getDate();
+    }
+
+    // how many reloads went live, for tests/monitoring
+    public long getReloads() { return reloads; }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        watchService.close();
+        synchronized (this) {
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -5,25 +5,30 @@ import java.time.LocalTime;
 
 public class Train extends Transport {
 
+    // every train has the same seats so they all share one layout
+    private static final SeatLayout LAYOUT = buildLayout();
+
     // I chose 200  seats for trains
     public Train(String id, String departure, String arrival,
                  LocalDate date, LocalTime departureTime, LocalTime arrivalTime,
                  double standardPrice, double premiumPrice, String trainClass) {
         super(id, "TRAIN", departure, arrival, date, departureTime, arrivalTime,
-                standardPrice, premiumPrice, trainClass, 200);
+                standardPrice, premiumPrice, trainClass, LAYOUT);
     }
 
     //initialising all seats
-    @Override
-    protected void initializeSeats() {
+    private static SeatLayout buildLayout() {
+        // seat letters of a row from left to right, | is where the aisle is
+        SeatLayout.Builder layout = new SeatLayout.Builder("TRAIN", "ABC|DEF");
+
         // 1st Class rows 1-5: 30seats (EXCELLENT)
         for (int row = 1; row <= 5; row++) {
-            seats.add(new Seat(row + "A", "WINDOW", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "B", "AISLE", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "C", "WINDOW", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "D", "WINDOW", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "E", "AISLE", row, true, "EXCELLENT"));
-            seats.add(new Seat(row + "F", "WINDOW", row, true, "EXCELLENT"));
+            layout.seat(row, "A", "WINDOW", true, "EXCELLENT");
+            layout.seat(row, "B", "AISLE", true, "EXCELLENT");
+            layout.seat(row, "C", "WINDOW", true, "EXCELLENT");
+            layout.seat(row, "D", "WINDOW", true, "EXCELLENT");
+            layout.seat(row, "E", "AISLE", true, "EXCELLENT");
+            layout.seat(row, "F", "WINDOW", true, "EXCELLENT");
         }
 
         // 2nd Class rows 6-33: 170 seats
@@ -31,17 +36,19 @@ public class Train extends Transport {
 
             // we need string quality check here since first rows are always better even in second class
             String quality = (row <= 15) ? "GOOD" : (row <= 28) ? "AVERAGE" : "POOR";
-            seats.add(new Seat(row + "A", "WINDOW", row, false, quality));
-            seats.add(new Seat(row + "B", "MIDDLE", row, false, quality));
-            seats.add(new Seat(row + "C", "AISLE", row, false, quality));
-            seats.add(new Seat(row + "D", "AISLE", row, false, quality));
-            seats.add(new Seat(row + "E", "MIDDLE", row, false, quality));
-            seats.add(new Seat(row + "F", "WINDOW", row, false, quality));
+            layout.seat(row, "A", "WINDOW", false, quality);
+            layout.seat(row, "B", "MIDDLE", false, quality);
+            layout.seat(row, "C", "AISLE", false, quality);
+            layout.seat(row, "D", "AISLE", false, quality);
+            layout.seat(row, "E", "MIDDLE", false, quality);
+            layout.seat(row, "F", "WINDOW", false, quality);
         }
 
         // Last 2 seats near the toilet
-        seats.add(new Seat("34A", "WINDOW", 34, false, "POOR"));
-        seats.add(new Seat("34B", "AISLE", 34, false, "POOR"));
+        layout.seat(34, "A", "WINDOW", false, "POOR");
+        layout.seat(34, "B", "AISLE", false, "POOR");
+
+        return layout.build();
     }
 
     @Override
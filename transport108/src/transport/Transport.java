@@ -4,6 +4,8 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // Abstract class I made which will handle the classes of the different means of transport (inheritence)
 public abstract class Transport {
@@ -12,6 +14,8 @@ public abstract class Transport {
 
     protected String departure;
     protected String arrival;
+    protected int departureId;   // ids from the CityDictionary
+    protected int arrivalId;
     protected LocalDate date;
 
     protected LocalTime departureTime;
@@ -20,16 +24,36 @@ public abstract class Transport {
     protected double premiumPrice;
 
     protected String addInfo;
-    protected List<Seat> seats;
+    protected SeatLayout layout;     // shared by all trips of the same vehicle type
     protected int totalSeats;
+    private SeatOccupancy occupancy; // one bit per seat, the only place where "taken" is stored
+    private volatile SeatOccupancy heldSeats; // which of the taken seats are only on hold (null = none yet)
+
+    // free seats per class, updated whenever a seat is claimed/released so we never have to count
+    // (not final: a reloaded trip takes over the ones of its old version, see shareSeatsWith)
+    private AtomicInteger freeStandardSeats = new AtomicInteger();
+    private AtomicInteger freePremiumSeats = new AtomicInteger();
+    // both classes together, used to spot the moment a trip sells out or gets a seat back
+    private AtomicInteger freeTotalSeats = new AtomicInteger();
+
+    // told when any trip sells out or becomes bookable again (e.g. the search cache)
+    private static final List<AvailabilityListener> availabilityListeners = new CopyOnWriteArrayList<>();
+
+    public interface AvailabilityListener {
+        void availabilityChanged(Transport transport, boolean soldOut);
+    }
 
     public Transport(String id, String type, String departure, String arrival,
                      LocalDate date, LocalTime departureTime, LocalTime arrivalTime, double standardPrice,
-                     double premiumPrice, String addInfo, int totalSeats) {
+                     double premiumPrice, String addInfo, SeatLayout layout) {
         this.id = id;
         this.type = type;
-        this.departure = departure;
-        this.arrival = arrival;
+        // same city always gets the same id (and the same String object for the name)
+        CityDictionary cities = CityDictionary.global();
+        this.departureId = cities.intern(departure);
+        this.arrivalId = cities.intern(arrival);
+        this.departure = cities.name(departureId);
+        this.arrival = cities.name(arrivalId);
 
         this.date = date;
         this.departureTime = departureTime;
@@ -38,38 +62,206 @@ public abstract class Transport {
         this.standardPrice = standardPrice;
         this.premiumPrice = premiumPrice;
 
-        this.totalSeats = totalSeats;
+        this.layout = layout;
+        this.totalSeats = layout.size();
         this.addInfo = addInfo;
 
-        this.seats = new ArrayList<>();
-
-        initializeSeats();
+        // no Seat objects are kept, just the bitmap (Seats are made from the layout when needed)
+        this.occupancy = new SeatOccupancy(totalSeats);
+        for (int i = 0; i < totalSeats; i++) {
+            freeSeats(layout.isPremium(i)).incrementAndGet();
+        }
+        freeTotalSeats.set(totalSeats);
     }
 
-    protected abstract void initializeSeats();
     public abstract String getDisplayType();
 
-    // Count available seats depends on the class type
+    // available seats depends on the class type (kept up to date by the seats, no counting loop)
     public int getAvailableSeats(boolean premium) {
-        int count = 0;
-        for (Seat seat : seats) {
-            if (seat.isPremium() == premium && !seat.isOccupied()) {
-                count++;
+        return freeSeats(premium).get();
+    }
+
+    // available seats in both classes
+    public int getAvailableSeatCount() {
+        return freeTotalSeats.get();
+    }
+
+    private AtomicInteger freeSeats(boolean premium) {
+        return premium ? freePremiumSeats : freeStandardSeats;
+    }
+
+    boolean isSeatOccupied(int seatIndex) {
+        return occupancy.isOccupied(seatIndex);
+    }
+
+    // taken bits of the seats from..from+count-1 (count max 64), bit 0 = seat from
+    long occupiedBits(int from, int count) {
+        return occupancy.bits(from, count);
+    }
+
+    // takes one seat, false if it was already taken
+    boolean claimSeat(int seatIndex) {
+        if (!occupancy.claim(seatIndex)) {
+            return false;
+        }
+        seatBooked(layout.isPremium(seatIndex));
+        return true;
+    }
+
+    void releaseSeat(int seatIndex) {
+        if (occupancy.release(seatIndex)) {
+            seatReleased(layout.isPremium(seatIndex));
+        }
+    }
+
+    /**
+     * Takes all the given seats of this transport or none of them (if another booking
+     * got one of them first). Safe to call from many threads at once.
+     */
+    public boolean claimSeats(List<Seat> toClaim) {
+        int[] indices = seatIndices(toClaim);
+        if (!occupancy.claimAll(indices)) {
+            return false;
+        }
+        for (int index : indices) {
+            seatBooked(layout.isPremium(index));
+        }
+        return true;
+    }
+
+    public void releaseSeats(List<Seat> toRelease) {
+        for (int index : seatIndices(toRelease)) {
+            releaseSeat(index);
+        }
+    }
+
+    boolean isSeatHeld(int seatIndex) {
+        SeatOccupancy held = heldSeats;
+        return held != null && held.isOccupied(seatIndex);
+    }
+
+    /**
+     * Takes the seats like claimSeats() and marks them as HELD (see SeatHoldManager).
+     * A held seat counts as taken, it just isn't booked yet.
+     */
+    boolean holdSeats(List<Seat> toHold) {
+        if (!claimSeats(toHold)) {
+            return false;
+        }
+        SeatOccupancy held = heldSeats();
+        for (Seat seat : toHold) {
+            held.claim(seat.getIndex());
+        }
+        return true;
+    }
+
+    // hold turned into a booking: the seats stay taken, they are just not "held" anymore
+    void confirmHeldSeats(List<Seat> held) {
+        for (int index : seatIndices(held)) {
+            heldSeats().release(index);
+        }
+    }
+
+    // hold ended without a booking, the seats are free again
+    void releaseHeldSeats(List<Seat> held) {
+        for (int index : seatIndices(held)) {
+            heldSeats().release(index);
+            releaseSeat(index);
+        }
+    }
+
+    /**
+     * For a trip that changed in the timetable files (hot reload, see TimetableWatcher): this new
+     * version uses the very same seat bitmaps and counters as the old one, so bookings and holds
+     * made on either object are seen by both. Only before this object is handed out.
+     */
+    void shareSeatsWith(Transport old) {
+        if (old.layout != layout) {
+            throw new IllegalArgumentException("Trip " + id + " has another seat layout than " + old.getId());
+        }
+        this.occupancy = old.occupancy;
+        this.heldSeats = old.heldSeats();
+        this.freeStandardSeats = old.freeStandardSeats;
+        this.freePremiumSeats = old.freePremiumSeats;
+        this.freeTotalSeats = old.freeTotalSeats;
+    }
+
+    // true for the same trip before and after a reload (see shareSeatsWith)
+    boolean sharesSeatsWith(Transport other) {
+        return occupancy == other.occupancy;
+    }
+
+    // made on the first hold, most trips never have one
+    private SeatOccupancy heldSeats() {
+        SeatOccupancy held = heldSeats;
+        if (held == null) {
+            synchronized (this) {
+                held = heldSeats;
+                if (held == null) {
+                    held = new SeatOccupancy(totalSeats);
+                    heldSeats = held;
+                }
+            }
+        }
+        return held;
+    }
+
+    private int[] seatIndices(List<Seat> list) {
+        int[] indices = new int[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            Seat seat = list.get(i);
+            if (seat.getTransport() != this) {
+                throw new IllegalArgumentException("Seat " + seat.getSeatNumber() + " is not a seat of " + id);
             }
+            indices[i] = seat.getIndex();
+        }
+        return indices;
+    }
+
+    private void seatBooked(boolean premium) {
+        freeSeats(premium).decrementAndGet();
+        if (freeTotalSeats.decrementAndGet() == 0) {
+            notifyAvailabilityListeners(true);
+        }
+    }
+
+    private void seatReleased(boolean premium) {
+        freeSeats(premium).incrementAndGet();
+        if (freeTotalSeats.incrementAndGet() == 1) {
+            notifyAvailabilityListeners(false);
         }
-        return count;
+    }
+
+    private void notifyAvailabilityListeners(boolean soldOut) {
+        for (AvailabilityListener listener : availabilityListeners) {
+            listener.availabilityChanged(this, soldOut);
+        }
+    }
+
+    public static void addAvailabilityListener(AvailabilityListener listener) {
+        availabilityListeners.add(listener);
+    }
+
+    public static void removeAvailabilityListener(AvailabilityListener listener) {
+        availabilityListeners.remove(listener);
     }
 
     public List<Seat> getAvailableSeats() {
         List<Seat> available = new ArrayList<>();
-        for (Seat seat : seats) {
-            if (!seat.isOccupied()) {
-                available.add(seat);
+        for (int i = 0; i < totalSeats; i++) {
+            if (!occupancy.isOccupied(i)) {
+                available.add(new Seat(this, i));
             }
         }
         return available;
     }
 
+    // the seat with that number (e.g. "12C"), null if this transport has no such seat
+    public Seat getSeat(String seatNumber) {
+        int index = layout.indexOf(seatNumber);
+        return index < 0 ? null : new Seat(this, index);
+    }
+
     // Calculate trip duration
     public Duration getDuration() {
         LocalTime start = departureTime;
@@ -103,79 +295,9 @@ public abstract class Transport {
         return ticketPrice;
     }
 
-    //loop for me to check and show seats based on the class selected (premium/standard)
+    // shows the seats of the class selected (premium/standard), see SeatMapRenderer
     public void displaySeatMap(boolean premium) {
-        // Get seats for this class
-        List<Seat> classSeats = new ArrayList<>();
-        for (Seat s : seats) {
-            if (s.isPremium() == premium) {
-                classSeats.add(s);
-            }
-        }
-
-        System.out.println("\n╔═══════════════════════════════════════════════════════════╗");
-        if (premium) {
-            System.out.println("║           PREMIUM/1ST CLASS SEAT-MAP                      ║");
-        } else {
-            System.out.println("║            STANDARD/2ND CLASS SEAT-MAP                    ║");
-        }
-        System.out.println("╠═══════════════════════════════════════════════════════════╣");
-        System.out.println("║          [X] = Occupied     [ ] = Available               ║");
-        System.out.println("║                                                           ║");
-        System.out.println("║                WINDOW | MIDDLE | AISLE                    ║");
-        System.out.println("╚═══════════════════════════════════════════════════════════╝\n");
-
-        //group seats by row
-        Map<Integer, List<Seat>> seatsByRow = new HashMap<>();
-        for (Seat s : classSeats) {
-            if (s.getRow() > 0) {
-                if (!seatsByRow.containsKey(s.getRow())) {
-                    seatsByRow.put(s.getRow(), new ArrayList<>());
-                }
-                seatsByRow.get(s.getRow()).add(s);
-            }
-        }
-
-        List<Integer> rows = new ArrayList<>(seatsByRow.keySet());
-        Collections.sort(rows);
-
-        //loop to go through seats by rows and checks if they are occupied
-        for (int row : rows) {
-            List<Seat> rowSeats = seatsByRow.get(row);
-            rowSeats.sort(Comparator.comparing(Seat::getSeatNumber));
-
-            System.out.printf("Row %2d:  ", row);
-
-            //checks if the seat is occupied or not :)
-            for (int i = 0; i < rowSeats.size(); i++) {
-                Seat seat = rowSeats.get(i);
-                String status;
-                if (seat.isOccupied()) {
-                    status = "X";
-                } else {
-                    status = " ";
-                }
-
-                // tried different ways but this is the one that worked for me
-                // to remove the numbers and get the letters only to display on the seat-map
-                String seatLetter = seat.getSeatNumber().replace("1", "").replace("2", "")
-                        .replace("3", "").replace("4", "").replace("5", "")
-                        .replace("6", "").replace("7", "").replace("8", "")
-                        .replace("9", "").replace("0", "");
-
-                System.out.printf("[%s]%s ", status, seatLetter);
-
-                // Add aisle separator after C and F (gaps to display the aisle location between seats)
-                if (seatLetter.equals("C") || seatLetter.equals("F")) {
-                    System.out.print("    |    ");
-                }
-            }
-
-            String quality = rowSeats.get(0).getQuality();
-            System.out.printf("  (%s)", quality);
-            System.out.println();
-        }
-        System.out.println();
+        SeatMapRenderer.print(this, premium, System.out);
     }
 
     // Getters
@@ -183,20 +305,41 @@ public abstract class Transport {
     public String getType() { return type; }
     public String getDeparture() { return departure; }
     public String getArrival() { return arrival; }
+    public int getDepartureId() { return departureId; }
+    public int getArrivalId() { return arrivalId; }
+    public long getRouteKey() { return CityDictionary.routeKey(departureId, arrivalId); }
     public LocalDate getDate() { return date; }
     public LocalTime getDepartureTime() { return departureTime; }
     public LocalTime getArrivalTime() { return arrivalTime; }
     public double getStandardPrice() { return standardPrice; }
     public double getPremiumPrice() { return premiumPrice; }
     public String getAddInfo() { return addInfo; }
-    public List<Seat> getSeats() { return seats; }
+    public SeatLayout getLayout() { return layout; }
+
+    // all seats, the Seat objects are only made when the list is read
+    public List<Seat> getSeats() {
+        return new AbstractList<Seat>() {
+            @Override
+            public Seat get(int index) {
+                if (index < 0 || index >= totalSeats) {
+                    throw new IndexOutOfBoundsException("Seat index " + index + " out of range");
+                }
+                return new Seat(Transport.this, index);
+            }
+
+            @Override
+            public int size() {
+                return totalSeats;
+            }
+        };
+    }
     public int getTotalSeats() { return totalSeats; }
 
 
     // This
     @Override
     public String toString() {
-        int available = getAvailableSeats(false) + getAvailableSeats(true);
+        int available = getAvailableSeatCount();
         String result = getDisplayType() + " | " + departure + " → " + arrival;
         result = result + " | " + date + " " + departureTime + "-" + arrivalTime;
         result = result + " (" + getDurationString() + ")";
@@ -0,0 +1,148 @@
+package transport;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Walks the trips of a route over a date range one at a time, in date and departure order,
+ * without building a list of all of them first. Only trips with free seats come out.
+ *
+ * The position can be saved as a page token (an opaque string) and a new cursor can start
+ * again right after it, that is how TripSearcher.page(...) does pagination.
+ */
+public class TripCursor implements Iterator<Transport> {
+
+    private static final String TOKEN_VERSION = "t1";
+
+    private final long routeKey;
+    private final Iterator<Map.Entry<LocalDate, TripIndex.DayTrips>> days;
+
+    private Iterator<Transport> dayTrips = Collections.emptyIterator();
+    private LocalDate currentDate;
+    private int positionInDay;   // trips of the current day we went past (including full ones)
+
+    private Transport next;
+    private LocalDate lastDate;  // where the last returned trip was, for the page token
+    private int lastPosition;
+
+    TripCursor(long routeKey, NavigableMap<LocalDate, TripIndex.DayTrips> byDate, LocalDate from, LocalDate to) {
+        this(routeKey, byDate, from, to, null, 0);
+    }
+
+    // startDate/skip = resume on that day after skipping that many trips of it
+    private TripCursor(long routeKey, NavigableMap<LocalDate, TripIndex.DayTrips> byDate,
+                       LocalDate from, LocalDate to, LocalDate startDate, int skip) {
+        this.routeKey = routeKey;
+        LocalDate first = (startDate == null) ? from : startDate;
+        this.days = (byDate == null || first.isAfter(to))
+                ? Collections.emptyIterator()
+                : byDate.subMap(first, true, to, true).entrySet().iterator();
+
+        if (startDate != null && days.hasNext()) {
+            nextDay();
+            if (startDate.equals(currentDate)) {
+                while (positionInDay < skip && dayTrips.hasNext()) {
+                    dayTrips.next();
+                    positionInDay++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cursor that continues after the position saved in the token.
+     * The token has to come from a cursor over the same route.
+     */
+    static TripCursor resume(String pageToken, long routeKey, NavigableMap<LocalDate, TripIndex.DayTrips> byDate,
+                             LocalDate from, LocalDate to) throws InvalidInputException {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Invalid page token.");
+        }
+
+        if (parts.length != 4 || !parts[0].equals(TOKEN_VERSION)) {
+            throw new InvalidInputException("Invalid page token.");
+        }
+
+        try {
+            if (Long.parseLong(parts[1]) != routeKey) {
+                throw new InvalidInputException("Page token belongs to a different search.");
+            }
+            LocalDate date = LocalDate.ofEpochDay(Long.parseLong(parts[2]));
+            int skip = Integer.parseInt(parts[3]);
+            if (date.isBefore(from)) {
+                throw new InvalidInputException("Page token belongs to a different search.");
+            }
+            return new TripCursor(routeKey, byDate, from, to, date, skip);
+        } catch (NumberFormatException e) {
+            throw new InvalidInputException("Invalid page token.");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            while (!dayTrips.hasNext()) {
+                if (!days.hasNext()) {
+                    return false;
+                }
+                nextDay();
+            }
+
+            Transport t = dayTrips.next();
+            positionInDay++;
+            if (t.getAvailableSeatCount() > 0) {
+                next = t;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Transport next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Transport t = next;
+        next = null;
+        lastDate = currentDate;
+        lastPosition = positionInDay;
+        return t;
+    }
+
+    private void nextDay() {
+        Map.Entry<LocalDate, TripIndex.DayTrips> day = days.next();
+        currentDate = day.getKey();
+        dayTrips = day.getValue().inDepartureOrder();
+        positionInDay = 0;
+    }
+
+    // token to continue right after the last trip returned by next(), null if nothing was returned yet
+    public String pageToken() {
+        if (lastDate == null) {
+            return null;
+        }
+        String position = TOKEN_VERSION + ":" + routeKey + ":" + lastDate.toEpochDay() + ":" + lastPosition;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * One page of results. nextPageToken is null on the last page.
+     */
+    public static class Page {
+        private final List<Transport> trips;
+        private final String nextPageToken;
+
+        Page(List<Transport> trips, String nextPageToken) {
+            this.trips = trips;
+            this.nextPageToken = nextPageToken;
+        }
+
+        public List<Transport> getTrips() { return trips; }
+        public String getNextPageToken() { return nextPageToken; }
+        public boolean hasMore() { return nextPageToken != null; }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package transport;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Index of all trips by route (departure -> arrival) and then by date.
+// Before this every search walked the whole transport list and compared the city names,
+// now a route lookup is one HashMap get on the packed city ids and the dates are kept sorted in a TreeMap
+// so I can use floor/ceiling to find the closest days when a date has no trips
+public class TripIndex {
+
+    private final Map<Long, TreeMap<LocalDate, DayTrips>> routes = new HashMap<>();
+    private final int size;
+
+    public TripIndex(List<Transport> transports) {
+        for (Transport t : transports) {
+            TreeMap<LocalDate, DayTrips> byDate = routes.computeIfAbsent(t.getRouteKey(), k -> new TreeMap<>());
+            byDate.computeIfAbsent(t.getDate(), d -> new DayTrips()).add(t);
+        }
+
+        // every day keeps its trips sorted by departure time so the results come out already in order
+        for (TreeMap<LocalDate, DayTrips> byDate : routes.values()) {
+            for (DayTrips day : byDate.values()) {
+                day.sort();
+            }
+        }
+
+        this.size = transports.size();
+    }
+
+    // city names are compared ignoring case like the old equalsIgnoreCase checks did
+    static long routeKey(String departure, String arrival) {
+        CityDictionary cities = CityDictionary.global();
+        return CityDictionary.routeKey(cities.lookup(departure), cities.lookup(arrival));
+    }
+
+    // all dates of a route, null if the route does not exist at all
+    public NavigableMap<LocalDate, DayTrips> getRoute(String departure, String arrival) {
+        return routes.get(routeKey(departure, arrival));
+    }
+
+    public NavigableMap<LocalDate, DayTrips> getRoute(int departureId, int arrivalId) {
+        return routes.get(CityDictionary.routeKey(departureId, arrivalId));
+    }
+
+    // trips of a route on one date, null if there are none
+    public DayTrips getDay(String departure, String arrival, LocalDate date) {
+        NavigableMap<LocalDate, DayTrips> byDate = getRoute(departure, arrival);
+        if (byDate == null) {
+            return null;
+        }
+        return byDate.get(date);
+    }
+
+    public int size() { return size; }
+
+    /**
+     * All trips of one route on one date, split by transport type.
+     * Each list is sorted by departure time.
+     */
+    public static class DayTrips {
+        private final List<Transport> trains = new ArrayList<>();
+        private final List<Transport> buses = new ArrayList<>();
+        private final List<Transport> flights = new ArrayList<>();
+
+        private void add(Transport t) {
+            getByType(t.getType()).add(t);
+        }
+
+        private void sort() {
+            Comparator<Transport> byTime = Comparator.comparing(Transport::getDepartureTime);
+            trains.sort(byTime);
+            buses.sort(byTime);
+            flights.sort(byTime);
+        }
+
+        public List<Transport> getByType(String type) {
+            switch (type) {
+                case "TRAIN": return trains;
+                case "BUS": return buses;
+                case "FLIGHT": return flights;
+                default: throw new IllegalArgumentException("Unknown transport type: " + type);
+            }
+        }
+
+        public List<Transport> getTrains() { return trains; }
+        public List<Transport> getBuses() { return buses; }
+        public List<Transport> getFlights() { return flights; }
+
+        public int size() {
+            return trains.size() + buses.size() + flights.size();
+        }
+
+        // all trips of the day in departure order (the 3 sorted lists merged, nothing is sorted again)
+        public Iterator<Transport> inDepartureOrder() {
+            return new MergedRuns(trains, buses, flights);
+        }
+
+        // same but only the given types, e.g. [TRAIN, FLIGHT]
+        public Iterator<Transport> inDepartureOrder(Set<String> types) {
+            return new MergedRuns(
+                    types.contains("TRAIN") ? trains : Collections.emptyList(),
+                    types.contains("BUS") ? buses : Collections.emptyList(),
+                    types.contains("FLIGHT") ? flights : Collections.emptyList());
+        }
+    }
+
+    // 3-way merge of lists that are each sorted by departure time, one trip at a time
+    private static class MergedRuns implements Iterator<Transport> {
+        private final List<List<Transport>> runs;
+        private final int[] positions;
+
+        MergedRuns(List<Transport> first, List<Transport> second, List<Transport> third) {
+            this.runs = Arrays.asList(first, second, third);
+            this.positions = new int[runs.size()];
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (int r = 0; r < runs.size(); r++) {
+                if (positions[r] < runs.get(r).size()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Transport next() {
+            int best = -1;
+            for (int r = 0; r < runs.size(); r++) {
+                if (positions[r] >= runs.get(r).size()) {
+                    continue;
+                }
+                if (best == -1 || runs.get(r).get(positions[r]).getDepartureTime()
+                        .isBefore(runs.get(best).get(positions[best]).getDepartureTime())) {
+                    best = r;
+                }
+            }
+            if (best == -1) {
+                throw new NoSuchElementException();
+            }
+            return runs.get(best).get(positions[best]++);
+        }
+    }
+}
\ No newline at end of file
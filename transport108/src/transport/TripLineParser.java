@@ -0,0 +1,342 @@
+package transport;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * Reads one line of a transport file straight from the file's bytes:
+ *
+ *   TYPE,ID,DEPARTURE,ARRIVAL,yyyy-MM-dd,HH:mm,HH:mm,STANDARD_PRICE,PREMIUM_PRICE,EXTRA_INFO
+ *
+ * (times may have seconds too, HH:mm:ss)
+ *
+ * Instead of split(",") + trim() + LocalDate.parse(...) every field is read in place: dates,
+ * times and prices are worked out digit by digit and no substrings are made for them. City
+ * names and extra infos repeat a lot, so their Strings are remembered and reused.
+ * Errors say in which column (1 = first character of the line) the problem is.
+ * Commas after the last field are fine (split(",") dropped those empty fields too).
+ *
+ * One parser per thread, it keeps the fields of the last line it read.
+ */
+public class TripLineParser {
+
+    private static final int FIELDS = 10;
+    private static final byte[] TRAIN = {'T', 'R', 'A', 'I', 'N'};
+    private static final byte[] BUS = {'B', 'U', 'S'};
+    private static final byte[] FLIGHT = {'F', 'L', 'I', 'G', 'H', 'T'};
+    // exact powers of ten for the prices (a price with more decimals goes the slow way)
+    private static final double[] POWERS_OF_TEN = {1, 10, 100, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+
+    // fields of the last line
+    private String type;
+    private String id;
+    private String departure;
+    private String arrival;
+    private LocalDate date;
+    private LocalTime departureTime;
+    private LocalTime arrivalTime;
+    private double standardPrice;
+    private double premiumPrice;
+    private String extraInfo;
+
+    private byte[] data;
+    private int lineStart;
+    private int pos;
+    private int end;
+
+    // last date seen, most files have many trips per day
+    private int lastDateKey = -1;
+    private LocalDate lastDate;
+
+    // city names / extra infos seen so far (just a few different ones, so a small array)
+    private final byte[][] knownBytes = new byte[64][];
+    private final String[] knownStrings = new String[64];
+    private int known;
+
+    /**
+     * Reads the line data[from..to) (without the line break).
+     * false = not a trip (empty, comment, header...), true = the fields are filled in.
+     * Throws IllegalArgumentException with the column if it looks like a trip but is broken.
+     */
+    public boolean parse(byte[] data, int from, int to) {
+        this.data = data;
+        this.lineStart = from;
+        this.pos = from;
+        this.end = to;
+        skipSpaces();
+
+        // only lines starting with a transport type are trips (comments, headers, ==== lines are skipped)
+        if (startsWith(TRAIN)) {
+            type = "TRAIN";
+        } else if (startsWith(BUS)) {
+            type = "BUS";
+        } else if (startsWith(FLIGHT)) {
+            type = "FLIGHT";
+        } else {
+            return false;
+        }
+
+        int typeStart = pos;
+        pos += type.length();
+        skipSpaces();
+        if (pos < end && data[pos] != ',') {
+            throw error(typeStart, "Unknown transport type: " + text(typeStart, fieldEnd(typeStart)));
+        }
+
+        id = nextText(1, false);
+        departure = nextText(2, true);
+        arrival = nextText(3, true);
+        date = nextDate(4);
+        departureTime = nextTime(5);
+        arrivalTime = nextTime(6);
+        standardPrice = nextPrice(7);
+        premiumPrice = nextPrice(8);
+        extraInfo = nextText(9, true);
+
+        // trailing empty fields ("...,ICE," or "...,ICE,,")
+        int extraStart = pos;
+        while (pos < end && data[pos] == ',') {
+            pos++;
+        }
+        skipSpaces();
+        if (pos < end) {
+            int fields = FIELDS;
+            for (int i = extraStart; i < end; i++) {
+                if (data[i] == ',') {
+                    fields++;
+                }
+            }
+            throw error(extraStart, "Expected " + FIELDS + " fields, got " + fields);
+        }
+        return true;
+    }
+
+    // a new Train/Bus/Flight from the fields of the last line
+    public Transport toTransport() {
+        switch (type) {
+            case "TRAIN":
+                return new Train(id, departure, arrival, date, departureTime, arrivalTime,
+                        standardPrice, premiumPrice, extraInfo);
+            case "BUS":
+                return new Bus(id, departure, arrival, date, departureTime, arrivalTime,
+                        standardPrice, premiumPrice, extraInfo);
+            default:
+                return new Flight(id, departure, arrival, date, departureTime, arrivalTime,
+                        standardPrice, premiumPrice, extraInfo);
+        }
+    }
+
+    // moves to the start of field number `field` (after the comma), trimmed
+    private void startField(int field) {
+        skipSpaces();
+        if (pos >= end || data[pos] != ',') {
+            throw error(pos, "Expected " + FIELDS + " fields, got " + field);
+        }
+        pos++;
+        skipSpaces();
+    }
+
+    // the field as a String, the end is trimmed as well
+    private String nextText(int field, boolean reuse) {
+        startField(field);
+        int start = pos;
+        int stop = fieldEnd(start);
+        pos = stop;
+        while (stop > start && isSpace(data[stop - 1])) {
+            stop--;
+        }
+        return reuse ? knownString(start, stop) : text(start, stop);
+    }
+
+    // yyyy-MM-dd
+    private LocalDate nextDate(int field) {
+        startField(field);
+        int start = pos;
+        if (end - pos < 10 || data[pos + 4] != '-' || data[pos + 7] != '-') {
+            throw error(start, "Expected a date like 2025-12-16, got '" + text(start, fieldEnd(start)) + "'");
+        }
+        int year = digits(pos, 4);
+        int month = digits(pos + 5, 2);
+        int day = digits(pos + 8, 2);
+        pos += 10;
+        checkFieldEnd(start, "a date like 2025-12-16");
+
+        int key = year * 10000 + month * 100 + day;
+        if (key != lastDateKey) {
+            try {
+                lastDate = LocalDate.of(year, month, day);
+            } catch (DateTimeException e) {
+                throw error(start, "Invalid date '" + text(start, pos) + "': " + e.getMessage());
+            }
+            lastDateKey = key;
+        }
+        return lastDate;
+    }
+
+    // HH:mm or HH:mm:ss (LocalTime.parse took both before, so old files keep loading)
+    private LocalTime nextTime(int field) {
+        startField(field);
+        int start = pos;
+        if (end - pos < 5 || data[pos + 2] != ':') {
+            throw error(start, "Expected a time like 08:30, got '" + text(start, fieldEnd(start)) + "'");
+        }
+        int hour = digits(pos, 2);
+        int minute = digits(pos + 3, 2);
+        int second = 0;
+        pos += 5;
+        if (pos < end && data[pos] == ':') {
+            if (end - pos < 3) {
+                throw error(start, "Expected a time like 08:30:15, got '" + text(start, fieldEnd(start)) + "'");
+            }
+            second = digits(pos + 1, 2);
+            pos += 3;
+        }
+        checkFieldEnd(start, "a time like 08:30");
+        if (hour > 23 || minute > 59 || second > 59) {
+            throw error(start, "Invalid time '" + text(start, pos) + "'");
+        }
+        return LocalTime.of(hour, minute, second);
+    }
+
+    // digits with an optional decimal part (89.9, 129.90, 35)
+    private double nextPrice(int field) {
+        startField(field);
+        int start = pos;
+        long value = 0;
+        int digitCount = 0;
+        int decimals = -1;
+        while (pos < end && data[pos] != ',' && !isSpace(data[pos])) {
+            byte b = data[pos];
+            if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                digitCount++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else {
+                throw error(pos, "Invalid price '" + text(start, fieldEnd(start)) + "'");
+            }
+            pos++;
+        }
+        checkFieldEnd(start, "a price like 89.90");
+        if (digitCount == 0) {
+            throw error(start, "Invalid price '" + text(start, fieldEnd(start)) + "'");
+        }
+        if (digitCount > 15 || decimals >= POWERS_OF_TEN.length) {
+            // too long to be exact this way, let Java do it
+            return Double.parseDouble(text(start, pos));
+        }
+        // exact integer / exact power of ten = the same double Double.parseDouble gives
+        return decimals <= 0 ? value : value / POWERS_OF_TEN[decimals];
+    }
+
+    // after a date/time/price only spaces may come before the next comma
+    private void checkFieldEnd(int start, String expected) {
+        int after = pos;
+        skipSpaces();
+        if (pos < end && data[pos] != ',') {
+            throw error(after, "Expected " + expected + ", got '" + text(start, fieldEnd(start)) + "'");
+        }
+    }
+
+    private int digits(int at, int count) {
+        int value = 0;
+        for (int i = at; i < at + count; i++) {
+            byte b = data[i];
+            if (b < '0' || b > '9') {
+                throw error(i, "Expected a digit, got '" + (char) b + "'");
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private boolean startsWith(byte[] word) {
+        if (end - pos < word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (data[pos + i] != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int fieldEnd(int from) {
+        int i = from;
+        while (i < end && data[i] != ',') {
+            i++;
+        }
+        return i;
+    }
+
+    private void skipSpaces() {
+        while (pos < end && isSpace(data[pos])) {
+            pos++;
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private String text(int from, int to) {
+        return new String(data, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    // the same String for the same bytes, so "Berlin" is made once and not for every trip
+    private String knownString(int from, int to) {
+        int length = to - from;
+        for (int k = 0; k < known; k++) {
+            byte[] bytes = knownBytes[k];
+            if (bytes.length == length && sameBytes(bytes, from)) {
+                return knownStrings[k];
+            }
+        }
+        String value = text(from, to);
+        if (known < knownBytes.length) {
+            knownBytes[known] = Arrays.copyOfRange(data, from, to);
+            knownStrings[known] = value;
+            known++;
+        }
+        return value;
+    }
+
+    private boolean sameBytes(byte[] bytes, int from) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != data[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the column counts characters, not bytes (a city like "Düsseldorf" has 2 bytes for the ü)
+    private IllegalArgumentException error(int at, String message) {
+        int column = 1;
+        for (int i = lineStart; i < at; i++) {
+            // UTF-8 continuation bytes (10xxxxxx) belong to the character before them
+            if ((data[i] & 0xC0) != 0x80) {
+                column++;
+            }
+        }
+        return new IllegalArgumentException("column " + column + ": " + message);
+    }
+
+    public String getType() { return type; }
+    public String getId() { return id; }
+    public String getDeparture() { return departure; }
+    public String getArrival() { return arrival; }
+    public LocalDate getDate() { return date; }
+    public LocalTime getDepartureTime() { return departureTime; }
+    public LocalTime getArrivalTime() { return arrivalTime; }
+    public double getStandardPrice() { return standardPrice; }
+    public double getPremiumPrice() { return premiumPrice; }
+    public String getExtraInfo() { return extraInfo; }
+}
\ No newline at end of file
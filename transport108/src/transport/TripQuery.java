@@ -0,0 +1,148 @@
+package transport;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * A search with filters, used by TripSearcher.query(...).
+ * Only route and date are needed, everything else is optional:
+ *
+ *   new TripQuery("Berlin", "Munich", date).types("TRAIN", "BUS").maxPrice(false, 60)
+ *           .departingBetween(LocalTime.of(6, 0), LocalTime.of(12, 0)).sortBy(SortKey.PRICE).limit(5)
+ */
+public class TripQuery {
+
+    public enum SortKey { DEPARTURE, PRICE, DURATION }
+
+    public static final int DEFAULT_LIMIT = 10;
+
+    private final String departure;
+    private final String arrival;
+    private final LocalDate fromDate;
+    private LocalDate toDate;
+
+    private Set<String> types = new HashSet<>(Arrays.asList("TRAIN", "BUS", "FLIGHT"));
+    private double maxStandardPrice = Double.MAX_VALUE;
+    private double maxPremiumPrice = Double.MAX_VALUE;
+    private Duration maxDuration;
+    private LocalTime earliestDeparture = LocalTime.MIN;
+    private LocalTime latestDeparture = LocalTime.MAX;
+    private int minFreeSeats = 1;
+    private Boolean premium; // null = any class
+    private SortKey sortKey = SortKey.DEPARTURE;
+    private int limit = DEFAULT_LIMIT;
+
+    public TripQuery(String departure, String arrival, LocalDate date) {
+        this.departure = departure;
+        this.arrival = arrival;
+        this.fromDate = date;
+        this.toDate = date;
+    }
+
+    // search several days (both dates included)
+    public TripQuery until(LocalDate lastDate) {
+        if (lastDate.isBefore(fromDate)) {
+            throw new IllegalArgumentException("Last date " + lastDate + " is before " + fromDate);
+        }
+        this.toDate = lastDate;
+        return this;
+    }
+
+    public TripQuery types(String... transportTypes) {
+        Set<String> chosen = new HashSet<>();
+        for (String type : transportTypes) {
+            chosen.add(type.toUpperCase());
+        }
+        this.types = chosen;
+        return this;
+    }
+
+    public TripQuery maxPrice(boolean premiumClass, double price) {
+        if (premiumClass) {
+            this.maxPremiumPrice = price;
+        } else {
+            this.maxStandardPrice = price;
+        }
+        return this;
+    }
+
+    public TripQuery maxDuration(Duration duration) {
+        this.maxDuration = duration;
+        return this;
+    }
+
+    public TripQuery departingBetween(LocalTime earliest, LocalTime latest) {
+        this.earliestDeparture = earliest;
+        this.latestDeparture = latest;
+        return this;
+    }
+
+    // free seats needed, counted in the chosen class (or both if no class is chosen)
+    public TripQuery minFreeSeats(int seats) {
+        this.minFreeSeats = seats;
+        return this;
+    }
+
+    // only look at one class (its price is then also the one used for sorting)
+    public TripQuery seatClass(boolean premiumClass) {
+        this.premium = premiumClass;
+        return this;
+    }
+
+    public TripQuery sortBy(SortKey key) {
+        this.sortKey = key;
+        return this;
+    }
+
+    // how many results at most (top K)
+    public TripQuery limit(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1, got " + k);
+        }
+        this.limit = k;
+        return this;
+    }
+
+    // true if the trip passes all filters
+    public boolean matches(Transport t) {
+        if (!types.contains(t.getType())) {
+            return false;
+        }
+        if (t.getStandardPrice() > maxStandardPrice || t.getPremiumPrice() > maxPremiumPrice) {
+            return false;
+        }
+        if (t.getDepartureTime().isBefore(earliestDeparture) || t.getDepartureTime().isAfter(latestDeparture)) {
+            return false;
+        }
+        if (maxDuration != null && t.getDuration().compareTo(maxDuration) > 0) {
+            return false;
+        }
+        int free = (premium == null) ? t.getAvailableSeatCount() : t.getAvailableSeats(premium);
+        return free >= minFreeSeats;
+    }
+
+    // order of the results for the sort key, ties go by date and departure time
+    public Comparator<Transport> comparator() {
+        Comparator<Transport> byDeparture = Comparator.comparing(Transport::getDate)
+                .thenComparing(Transport::getDepartureTime);
+        switch (sortKey) {
+            case PRICE:
+                boolean premiumPrice = premium != null && premium;
+                return Comparator.comparingDouble((Transport t) -> t.getPrice(premiumPrice)).thenComparing(byDeparture);
+            case DURATION:
+                return Comparator.comparing(Transport::getDuration).thenComparing(byDeparture);
+            default:
+                return byDeparture;
+        }
+    }
+
+    public String getDeparture() { return departure; }
+    public String getArrival() { return arrival; }
+    public LocalDate getFromDate() { return fromDate; }
+    public LocalDate getToDate() { return toDate; }
+    public Set<String> getTypes() { return types; }
+    public SortKey getSortKey() { return sortKey; }
+    public int getLimit() { return limit; }
+}
\ No newline at end of file
@@ -1,48 +1,96 @@
 package transport;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TripSearcher {
 
-    private List<Transport> allTransports;
+    private volatile TripIndex index;   // swapped as a whole by reload(), read once per search
+    private SearchEngine engine;
+    private SearchCache cache;
+
+    // how far (in days) the nearest date fallback looks before and after the chosen date
+    private static final int NEAREST_DATE_RANGE = 14;
+    private static final String NO_TRIPS_ON_DATE = "\n⚠️ sorry. no trips found for the date chose. Searching nearby dates...\n";
+    private static final String FOUND_NEARBY = "✅ Found trips on nearby dates!\n";
+
+    //Sorting by date, then by departure time (trying Lambda sort instead of for loop)
+    private static final Comparator<Transport> BY_DATE_AND_TIME = (t1, t2) -> {
+        int dateCompare = t1.getDate().compareTo(t2.getDate());
+        if (dateCompare != 0) return dateCompare;
+        return t1.getDepartureTime().compareTo(t2.getDepartureTime());
+    };
 
     public TripSearcher(List<Transport> transports) {
-        this.allTransports = transports;
+        this(transports, SearchEngine.defaultEngine());
+    }
+
+    public TripSearcher(List<Transport> transports, SearchEngine engine) {
+        this(transports, engine, new SearchCache());
     }
 
+    public TripSearcher(List<Transport> transports, SearchEngine engine, SearchCache cache) {
+        this.index = new TripIndex(transports);
+        this.engine = engine;
+        this.cache = cache;
 
-    // I made a small threading implementation to showcase the concept
-    // but it doesnt really give any major performance boost here
-    //will be impactful for huge datasets tho
+        // cached results have to hear about trips selling out (until shutdown())
+        Transport.addAvailabilityListener(cache);
+    }
+
+    /**
+     * Stops the cache from listening to seat changes, otherwise the static listener list keeps
+     * this searcher alive forever. The engine is shared, so it is not stopped here.
+     */
+    public void shutdown() {
+        Transport.removeAvailabilityListener(cache);
+    }
+
+
+    // The threads come from the shared SearchEngine now instead of a new pool per search,
+    // the 3 transport types are searched in parallel like before
     public List<Transport> searchTrips(String departure, String arrival, LocalDate date)
             throws NoTripsFoundException {
 
-        ExecutorService executor = Executors.newFixedThreadPool(3);
-        List<Future<List<Transport>>> futures = new ArrayList<>();
-
-        //search each transport type in parallel
-        futures.add(executor.submit(() -> searchByType("TRAIN", departure, arrival, date)));
-        futures.add(executor.submit(() -> searchByType("BUS", departure, arrival, date)));
-        futures.add(executor.submit(() -> searchByType("FLIGHT", departure, arrival, date)));
+        SearchCache.Result cached = cache.get(departure, arrival, date);
+        if (cached != null) {
+            if (cached.isNearbyDates()) {
+                // the same notice as when it was searched
+                System.out.println(NO_TRIPS_ON_DATE);
+                System.out.println(FOUND_NEARBY);
+            }
+            return cached.getTrips();
+        }
+        long cacheVersion = cache.getVersion(departure, arrival);
+        // the whole search uses the same index even if a reload swaps it meanwhile
+        TripIndex index = this.index;
 
         List<Transport> results = new ArrayList<>();
 
         try {
+            List<Future<List<Transport>>> futures = new ArrayList<>();
+
+            //search each transport type in parallel
+            futures.add(engine.submit(() -> searchByType(index, "TRAIN", departure, arrival, date)));
+            futures.add(engine.submit(() -> searchByType(index, "BUS", departure, arrival, date)));
+            futures.add(engine.submit(() -> searchByType(index, "FLIGHT", departure, arrival, date)));
+
             //receive results from all threads
             for (Future<List<Transport>> future : futures) {
                 results.addAll(future.get());
             }
         } catch (InterruptedException | ExecutionException e) {
             throw new NoTripsFoundException("Error during trip search: " + e.getMessage());
-        } finally {
-            executor.shutdown();
         }
 
         // If no exact matches found, try nearest dates
-        if (results.isEmpty()) {
-            results = searchNearestDate(departure, arrival, date);
+        boolean nearbyDates = results.isEmpty();
+        if (nearbyDates) {
+            results = searchNearestDate(index, departure, arrival, date);
         }
 
         if (results.isEmpty()) {
@@ -51,56 +99,273 @@ public class TripSearcher {
                             departure, arrival, date));
         }
 
-        //Sorting by date, then by departure time (trying Lambda sort instead of for loop)
-        results.sort((t1, t2) -> {
-            int dateCompare = t1.getDate().compareTo(t2.getDate());
-            if (dateCompare != 0) return dateCompare;
-            return t1.getDepartureTime().compareTo(t2.getDepartureTime());
-        });
+        results.sort(BY_DATE_AND_TIME);
 
+        cache.put(departure, arrival, date, results, nearbyDates, cacheVersion);
         return results;
     }
 
-    private List<Transport> searchByType(String type, String departure, String arrival, LocalDate date) {
+    /**
+     * Swaps in a changed timetable (see TimetableWatcher). The new index is built first while
+     * searches go on with the old one, then it replaces the old one in one step and the cache is
+     * emptied so no results of the old timetable come back. Searches never wait for this.
+     */
+    public void reload(List<Transport> transports) {
+        this.index = new TripIndex(transports);
+        cache.clear();
+    }
+
+    public SearchCache getCache() { return cache; }
+
+    /**
+     * Trips with free seats from..to (both included) in date and departure order, found one by one
+     * while iterating. Nothing is collected up front so stopping early costs nothing.
+     */
+    public TripCursor cursor(String departure, String arrival, LocalDate from, LocalDate to) {
+        return new TripCursor(TripIndex.routeKey(departure, arrival), index.getRoute(departure, arrival), from, to);
+    }
+
+    public Stream<Transport> stream(String departure, String arrival, LocalDate from, LocalDate to) {
+        Spliterator<Transport> trips = Spliterators.spliteratorUnknownSize(
+                cursor(departure, arrival, from, to), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(trips, false);
+    }
+
+    /**
+     * One page of at most pageSize trips. Pass null as token for the first page,
+     * then the nextPageToken of the page before.
+     */
+    public TripCursor.Page page(String departure, String arrival, LocalDate from, LocalDate to,
+                                int pageSize, String pageToken) throws InvalidInputException {
+        if (pageSize < 1) {
+            throw new InvalidInputException("Page size must be at least 1.");
+        }
+
+        long routeKey = TripIndex.routeKey(departure, arrival);
+        NavigableMap<LocalDate, TripIndex.DayTrips> byDate = index.getRoute(departure, arrival);
+        TripCursor cursor = (pageToken == null)
+                ? new TripCursor(routeKey, byDate, from, to)
+                : TripCursor.resume(pageToken, routeKey, byDate, from, to);
+
+        List<Transport> trips = new ArrayList<>(pageSize);
+        while (trips.size() < pageSize && cursor.hasNext()) {
+            trips.add(cursor.next());
+        }
+
+        String nextToken = cursor.hasNext() ? cursor.pageToken() : null;
+        return new TripCursor.Page(trips, nextToken);
+    }
+
+    // cheapest fares per day for a route, e.g. the next 30 days (both dates included)
+    public FareCalendar fareCalendar(String departure, String arrival, LocalDate from, LocalDate to)
+            throws InvalidInputException {
+        if (to.isBefore(from)) {
+            throw new InvalidInputException("End date " + to + " is before the start date " + from + ".");
+        }
+        return FareCalendar.build(departure, arrival, index.getRoute(departure, arrival), from, to);
+    }
+
+    /**
+     * Answers many route/date queries at once. The queries are grouped by route so each route
+     * is looked up in the index only once, and the route groups run in parallel on the engine.
+     * Results come back in the same order as the queries, a query without trips gets a
+     * NoTripsFoundException in its result instead of failing the whole batch.
+     */
+    public List<BatchSearch.Result> searchBatch(List<BatchSearch.Query> queries) {
+        Map<Long, List<Integer>> byRoute = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            BatchSearch.Query q = queries.get(i);
+            byRoute.computeIfAbsent(TripIndex.routeKey(q.getDeparture(), q.getArrival()), k -> new ArrayList<>()).add(i);
+        }
+
+        BatchSearch.Result[] results = new BatchSearch.Result[queries.size()];
+        List<Future<?>> futures = new ArrayList<>();
+        List<List<Integer>> groups = new ArrayList<>(byRoute.values());
+
+        for (List<Integer> group : groups) {
+            futures.add(engine.submit(() -> {
+                answerRoute(queries, group, results);
+                return null;
+            }));
+        }
+
+        for (int g = 0; g < groups.size(); g++) {
+            try {
+                futures.get(g).get();
+            } catch (InterruptedException | ExecutionException e) {
+                // only this route failed, the other routes keep their answers
+                for (int i : groups.get(g)) {
+                    if (results[i] == null) {
+                        results[i] = new BatchSearch.Result(queries.get(i),
+                                new NoTripsFoundException("Error during trip search: " + e.getMessage()));
+                    }
+                }
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    // all queries of the group have the same route
+    private void answerRoute(List<BatchSearch.Query> queries, List<Integer> group, BatchSearch.Result[] results) {
+        BatchSearch.Query first = queries.get(group.get(0));
+        NavigableMap<LocalDate, TripIndex.DayTrips> byDate = index.getRoute(first.getDeparture(), first.getArrival());
+
+        for (int i : group) {
+            BatchSearch.Query q = queries.get(i);
+            List<Transport> trips = new ArrayList<>();
+
+            if (byDate != null) {
+                TripIndex.DayTrips day = byDate.get(q.getDate());
+                if (day != null) {
+                    Iterator<Transport> inOrder = day.inDepartureOrder();
+                    while (inOrder.hasNext()) {
+                        Transport t = inOrder.next();
+                        if (hasFreeSeats(t)) {
+                            trips.add(t);
+                        }
+                    }
+                }
+                if (trips.isEmpty()) {
+                    trips = findNearestDate(byDate, q.getDate());
+                    trips.sort(BY_DATE_AND_TIME);
+                }
+            }
+
+            if (trips.isEmpty()) {
+                results[i] = new BatchSearch.Result(q, new NoTripsFoundException(
+                        String.format("No trips found from %s to %s on or near %s",
+                                q.getDeparture(), q.getArrival(), q.getDate())));
+            } else {
+                results[i] = new BatchSearch.Result(q, trips);
+            }
+        }
+    }
+
+    /**
+     * Filtered search that only gives back the best K trips (query.getLimit()).
+     * Sorted by departure: the per-type lists of each day are already sorted so they are merged
+     * and we stop after K trips. Sorted by price/duration: a heap that never holds more than K trips.
+     * Returns an empty list when nothing matches.
+     */
+    public List<Transport> query(TripQuery query) {
         List<Transport> results = new ArrayList<>();
 
-        for (Transport t : allTransports) {
-            if (t.getType().equals(type) &&
-                    t.getDeparture().equalsIgnoreCase(departure) &&
-                    t.getArrival().equalsIgnoreCase(arrival) &&
-                    t.getDate().equals(date)) {
+        NavigableMap<LocalDate, TripIndex.DayTrips> byDate = index.getRoute(query.getDeparture(), query.getArrival());
+        if (byDate == null) {
+            return results;
+        }
+        Collection<TripIndex.DayTrips> days = byDate.subMap(query.getFromDate(), true, query.getToDate(), true).values();
+        int k = query.getLimit();
+
+        if (query.getSortKey() == TripQuery.SortKey.DEPARTURE) {
+            for (TripIndex.DayTrips day : days) {
+                Iterator<Transport> merged = day.inDepartureOrder(query.getTypes());
+                while (merged.hasNext()) {
+                    Transport t = merged.next();
+                    if (query.matches(t)) {
+                        results.add(t);
+                        if (results.size() == k) {
+                            return results;
+                        }
+                    }
+                }
+            }
+            return results;
+        }
 
-                int availableSeats = t.getAvailableSeats(false) + t.getAvailableSeats(true);
-                if (availableSeats > 0) {
-                    results.add(t);
+        // the worst of the current top K sits on top of the heap so it can be swapped out
+        Comparator<Transport> order = query.comparator();
+        PriorityQueue<Transport> topK = new PriorityQueue<>(k, order.reversed());
+        for (TripIndex.DayTrips day : days) {
+            Iterator<Transport> trips = day.inDepartureOrder(query.getTypes());
+            while (trips.hasNext()) {
+                Transport t = trips.next();
+                if (!query.matches(t)) {
+                    continue;
+                }
+                if (topK.size() < k) {
+                    topK.add(t);
+                } else if (order.compare(t, topK.peek()) < 0) {
+                    topK.poll();
+                    topK.add(t);
                 }
             }
         }
 
+        while (!topK.isEmpty()) {
+            results.add(topK.poll());
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    private List<Transport> searchByType(TripIndex index, String type, String departure, String arrival, LocalDate date) {
+        List<Transport> results = new ArrayList<>();
+
+        TripIndex.DayTrips day = index.getDay(departure, arrival, date);
+        if (day == null) {
+            return results;
+        }
+
+        for (Transport t : day.getByType(type)) {
+            if (hasFreeSeats(t)) {
+                results.add(t);
+            }
+        }
+
         return results;
     }
 
     /**
-     * Search for nearest available dates (within ±3 days)
+     * Search for nearest available dates (within ±14 days)
+     * Uses the dates that actually exist for the route (floor/ceiling in the index)
+     * instead of checking all 28 dates one by one
      */
-    private List<Transport> searchNearestDate(String departure, String arrival, LocalDate targetDate) {
-        System.out.println("\n⚠️ sorry. no trips found for the date chose. Searching nearby dates...\n");
+    private List<Transport> searchNearestDate(TripIndex index, String departure, String arrival, LocalDate targetDate) {
+        System.out.println(NO_TRIPS_ON_DATE);
+
+        NavigableMap<LocalDate, TripIndex.DayTrips> byDate = index.getRoute(departure, arrival);
+        if (byDate == null) {
+            return new ArrayList<>();
+        }
+
+        List<Transport> nearby = findNearestDate(byDate, targetDate);
+        if (!nearby.isEmpty()) {
+            System.out.println(FOUND_NEARBY);
+        }
+        return nearby;
+    }
 
+    private List<Transport> findNearestDate(NavigableMap<LocalDate, TripIndex.DayTrips> byDate, LocalDate targetDate) {
         List<Transport> nearby = new ArrayList<>();
 
-        // Search ±14 days
-        for (int offset = 1; offset <= 14; offset++) {
-            //trying future dates first
-            LocalDate futureDate = targetDate.plusDays(offset);
-            nearby.addAll(searchExactDate(departure, arrival, futureDate));
+        LocalDate future = byDate.higherKey(targetDate);
+        LocalDate past = byDate.lowerKey(targetDate);
+
+        while (future != null || past != null) {
+            long futureOffset = (future == null) ? Long.MAX_VALUE : ChronoUnit.DAYS.between(targetDate, future);
+            long pastOffset = (past == null) ? Long.MAX_VALUE : ChronoUnit.DAYS.between(past, targetDate);
+            long offset = Math.min(futureOffset, pastOffset);
+
+            if (offset > NEAREST_DATE_RANGE) {
+                break;
+            }
+
+            //trying future dates first (same offset in both directions is checked together like before)
+            if (futureOffset == offset) {
+                nearby.addAll(searchExactDate(byDate.get(future)));
+                future = byDate.higherKey(future);
+            }
 
             //trying past dates
-            LocalDate pastDate = targetDate.minusDays(offset);
-            nearby.addAll(searchExactDate(departure, arrival, pastDate));
+            if (pastOffset == offset) {
+                nearby.addAll(searchExactDate(byDate.get(past)));
+                past = byDate.lowerKey(past);
+            }
 
             // If some trips found return them
             if (!nearby.isEmpty()) {
-                System.out.println("✅ Found trips on nearby dates!\n");
                 return nearby;
             }
         }
@@ -109,22 +374,26 @@ public class TripSearcher {
     }
 
 
-    //helper method for calling or else I need to duplicate code ±14
-    private List<Transport> searchExactDate(String departure, String arrival, LocalDate date) {
+    //helper method for calling or else I need to duplicate code for every date
+    private List<Transport> searchExactDate(TripIndex.DayTrips day) {
         List<Transport> results = new ArrayList<>();
 
-        for (Transport t : allTransports) {
-            if (t.getDeparture().equalsIgnoreCase(departure) &&
-                    t.getArrival().equalsIgnoreCase(arrival) &&
-                    t.getDate().equals(date)) {
+        addWithFreeSeats(day.getTrains(), results);
+        addWithFreeSeats(day.getBuses(), results);
+        addWithFreeSeats(day.getFlights(), results);
 
-                int availableSeats = t.getAvailableSeats(false) + t.getAvailableSeats(true);
-                if (availableSeats > 0) {
-                    results.add(t);
-                }
+        return results;
+    }
+
+    private void addWithFreeSeats(List<Transport> trips, List<Transport> results) {
+        for (Transport t : trips) {
+            if (hasFreeSeats(t)) {
+                results.add(t);
             }
         }
+    }
 
-        return results;
+    private boolean hasFreeSeats(Transport t) {
+        return t.getAvailableSeatCount() > 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package transport;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Commit throughput and replay speed of the BookingJournal (user-023).
+ *
+ * Commit: every durability mode with 1 and 8 threads, each booking is written with logBooking
+ * like BookingSystem does (SYNC/GROUP wait for the disk, ASYNC doesn't).
+ * Replay: a journal with many bookings and cancellations is read back onto fresh trips and
+ * checked: exactly the bookings that were not cancelled come back, with their seats taken.
+ *
+ * Run: java -cp out transport.BookingJournalBench [folder] [bookings per run]
+ */
+public class BookingJournalBench {
+
+    private static final int TRIPS = 500;
+
+    public static void main(String[] args) throws Exception {
+        Path folder = Paths.get(args.length > 0 ? args[0] : "journal-bench");
+        int bookings = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        for (BookingJournal.Durability durability : BookingJournal.Durability.values()) {
+            for (int threads : new int[]{1, 8}) {
+                commit(folder, durability, threads, durability == BookingJournal.Durability.SYNC ? bookings / 10 : bookings);
+            }
+        }
+        replay(folder, bookings * 5);
+        delete(folder);
+    }
+
+    private static void commit(Path folder, BookingJournal.Durability durability, int threads, int bookings)
+            throws Exception {
+        delete(folder);
+        List<Transport> trips = trips();
+        try (BookingJournal journal = new BookingJournal(folder, durability, 64L << 20)) {
+            journal.replay(trips);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = first; i < bookings; i += threads) {
+                        journal.logBooking(booking(trips, i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            pool.shutdown();
+            System.out.printf("commit %-5s %d thread/s: %7.0f bookings/s (%d in %.2f s)%n",
+                    durability, threads, bookings / seconds, bookings, seconds);
+        }
+    }
+
+    private static void replay(Path folder, int bookings) throws Exception {
+        delete(folder);
+        List<Transport> trips = trips();
+        Set<String> alive = new HashSet<>();
+        try (BookingJournal journal = new BookingJournal(folder, BookingJournal.Durability.ASYNC, 4L << 20)) {
+            journal.replay(trips);
+            for (int i = 0; i < bookings; i++) {
+                Booking booking = booking(trips, i);
+                journal.logBooking(booking);
+                alive.add(booking.getBookingId());
+                if (i % 4 == 0) {
+                    journal.logCancel(booking);
+                    alive.remove(booking.getBookingId());
+                }
+            }
+        }
+
+        List<Transport> fresh = trips();
+        long start = System.nanoTime();
+        List<Booking> back;
+        try (BookingJournal journal = new BookingJournal(folder, BookingJournal.Durability.ASYNC, 4L << 20)) {
+            back = journal.replay(fresh);
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        check(back.size() == alive.size(), back.size() + " bookings came back, " + alive.size() + " expected");
+        for (Booking booking : back) {
+            check(alive.contains(booking.getBookingId()), booking.getBookingId() + " was cancelled but came back");
+            for (Seat seat : booking.getBookedSeats()) {
+                check(seat.isOccupied(), "seat " + seat.getSeatNumber() + " of " + booking.getBookingId() + " is free");
+            }
+        }
+        int records = bookings + (bookings + 3) / 4;
+        System.out.printf("replay: %d records written, %d bookings alive, read back in %.0f ms (%.0f records/s), state checked%n",
+                records, back.size(), millis, records / (millis / 1000));
+    }
+
+    // empty trips, so every run starts with the same free seats
+    private static List<Transport> trips() {
+        List<Transport> trips = new ArrayList<>(TRIPS);
+        for (int i = 0; i < TRIPS; i++) {
+            trips.add(new Train("JB" + i, "Berlin", "Hamburg", LocalDate.of(2026, 1, 1).plusDays(i % 30),
+                    LocalTime.of(8, 0), LocalTime.of(10, 0), 30, 60, "ICE"));
+        }
+        return trips;
+    }
+
+    // booking number i gets its own seat: trip i % TRIPS, seat i / TRIPS
+    private static Booking booking(List<Transport> trips, int i) {
+        Transport trip = trips.get(i % TRIPS);
+        int seat = (i / TRIPS) % trip.getTotalSeats();
+        return new Booking(String.format("BK-%012X", i), trip, List.of(new Seat(trip, seat)), 1,
+                "Bench " + i, false, LocalDateTime.now());
+    }
+
+    private static void delete(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static void check(boolean ok, String problem) {
+        if (!ok) {
+            throw new AssertionError(problem);
+        }
+    }
+}
\ No newline at end of file
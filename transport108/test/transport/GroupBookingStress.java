@@ -0,0 +1,146 @@
+package transport;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * All-or-nothing group bookings over several trips (user-016):
+ * - many threads book two-leg groups (train there, flight back, legs in random order) at once:
+ *   the seats taken on each trip are always passengers x successful groups and no seat is in
+ *   two bookings, so no group was left half booked
+ * - a leg that fails with any exception gives the seats of the earlier legs back
+ * - cancelling a leg and then its group (or anything twice) frees the seats only once
+ *
+ * Run: java -cp out transport.GroupBookingStress [threads] [groups per thread]
+ */
+public class GroupBookingStress {
+
+    private static final int PASSENGERS = 6;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int groups = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+
+        for (int round = 0; round < 5; round++) {
+            concurrentGroups(threads, groups);
+        }
+        failingLeg();
+        cancelTwice();
+        System.out.println("✅ Group bookings OK");
+    }
+
+    private static void concurrentGroups(int threads, int groups) throws Exception {
+        Transport there = new Train("GT1", "Berlin", "Munich", LocalDate.of(2026, 1, 10),
+                LocalTime.of(12, 0), LocalTime.of(16, 0), 10, 20, "ICE");
+        Transport back = new Flight("GF1", "Munich", "Berlin", LocalDate.of(2026, 1, 14),
+                LocalTime.of(12, 0), LocalTime.of(13, 0), 10, 20, "Lufthansa");
+        int freeThere = there.getAvailableSeats(false);
+        int freeBack = back.getAvailableSeats(false);
+
+        List<GroupBooking> booked = new CopyOnWriteArrayList<>();
+        AtomicInteger soldOut = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        long begin = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int g = 0; g < groups; g++) {
+                    List<GroupBooking.Leg> legs = new ArrayList<>(List.of(
+                            new GroupBooking.Leg(there, PASSENGERS, false),
+                            new GroupBooking.Leg(back, PASSENGERS, false)));
+                    if (ThreadLocalRandom.current().nextBoolean()) {
+                        Collections.reverse(legs);
+                    }
+                    try {
+                        booked.add(GroupBooking.book(legs, "Group"));
+                    } catch (BookedSeatsException e) {
+                        soldOut.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        double millis = (System.nanoTime() - begin) / 1e6;
+
+        int expected = booked.size() * PASSENGERS;
+        check(freeThere - there.getAvailableSeats(false) == expected, "train: "
+                + (freeThere - there.getAvailableSeats(false)) + " seats taken, " + expected + " expected");
+        check(freeBack - back.getAvailableSeats(false) == expected, "flight: "
+                + (freeBack - back.getAvailableSeats(false)) + " seats taken, " + expected + " expected");
+        Set<Seat> seen = new HashSet<>();
+        for (GroupBooking group : booked) {
+            for (Booking booking : group.getBookings()) {
+                for (Seat seat : booking.getBookedSeats()) {
+                    check(seen.add(seat), "seat " + seat.getSeatNumber() + " of " + seat.getTransport().getId() + " booked twice");
+                }
+            }
+        }
+        System.out.printf("%d threads: %d groups booked, %d sold out, %.0f ms, seats match on both trips%n",
+                threads, booked.size(), soldOut.get(), millis);
+    }
+
+    // the second leg throws something else than BookedSeatsException
+    private static void failingLeg() throws Exception {
+        Transport fine = new Train("GL1", "Berlin", "Hamburg", LocalDate.of(2026, 1, 10),
+                LocalTime.of(12, 0), LocalTime.of(14, 0), 10, 20, "ICE");
+        Transport broken = new Train("GL2", "Hamburg", "Kiel", LocalDate.of(2026, 1, 10),
+                LocalTime.of(15, 0), LocalTime.of(16, 0), 10, 20, "RE") {
+            @Override
+            public boolean claimSeats(List<Seat> toClaim) {
+                throw new IllegalStateException("broken leg");
+            }
+        };
+        int free = fine.getAvailableSeats(false);
+        try {
+            GroupBooking.book(List.of(new GroupBooking.Leg(fine, 3, false), new GroupBooking.Leg(broken, 3, false)), "Broken");
+            check(false, "the broken leg was booked");
+        } catch (IllegalStateException expected) {
+            // the failure goes through, the seats of the first leg must be back
+        }
+        check(fine.getAvailableSeats(false) == free, "the first leg kept " + (free - fine.getAvailableSeats(false)) + " seats");
+        System.out.println("failing leg: the seats of the other leg were given back");
+    }
+
+    // a seat freed by the first cancel and booked by someone else must stay theirs
+    private static void cancelTwice() throws Exception {
+        Transport trip = new Bus("GC1", "Berlin", "Leipzig", LocalDate.of(2026, 1, 10),
+                LocalTime.of(12, 0), LocalTime.of(14, 0), 10, 20, "FlixBus");
+        Transport other = new Bus("GC2", "Leipzig", "Dresden", LocalDate.of(2026, 1, 10),
+                LocalTime.of(15, 0), LocalTime.of(16, 0), 10, 20, "FlixBus");
+        GroupBooking group = GroupBooking.book(List.of(new GroupBooking.Leg(trip, 2, false),
+                new GroupBooking.Leg(other, 2, false)), "Twice");
+        Booking leg = group.getBookings().get(0);
+        List<Seat> seats = leg.getBookedSeats();
+
+        leg.cancel();
+        Booking next = new Booking(leg.getTransport(), seats, seats.size(), "Next", false);
+        leg.cancel();
+        group.cancel();
+        group.cancel();
+        for (Seat seat : seats) {
+            check(seat.isOccupied(), "seat " + seat.getSeatNumber() + " of the next customer was freed again");
+        }
+        check(leg.isCancelled() && group.getBookings().get(1).isCancelled(), "a leg is not cancelled");
+        next.cancel();
+        check(trip.getAvailableSeats(false) + trip.getAvailableSeats(true) == trip.getTotalSeats()
+                && other.getAvailableSeats(false) + other.getAvailableSeats(true) == other.getTotalSeats(),
+                "seat counters are off after the cancels");
+        System.out.println("cancel twice: seats freed once, the next customer keeps them");
+    }
+
+    private static void check(boolean ok, String problem) {
+        if (!ok) {
+            throw new AssertionError(problem);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package transport;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * How fast the JourneyPlanner answers on a timetable of a million connections (user-003).
+ * Made up timetable: 60 cities, 30 days, random routes/times, then random journey searches
+ * with up to 2 changes like the booking menu does.
+ *
+ * Run: java -cp out transport.JourneyPlannerBench [connections] [queries]
+ */
+public class JourneyPlannerBench {
+
+    public static void main(String[] args) {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int cities = 60;
+        int days = 30;
+        LocalDate firstDay = LocalDate.of(2026, 1, 1);
+        Random random = new Random(42);
+
+        List<Transport> trips = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            int from = random.nextInt(cities);
+            int to = (from + 1 + random.nextInt(cities - 1)) % cities;
+            int departure = random.nextInt(1440 - 300);
+            int duration = 30 + random.nextInt(270);
+            trips.add(new Bus("B" + i, "City" + from, "City" + to, firstDay.plusDays(random.nextInt(days)),
+                    LocalTime.of(departure / 60, departure % 60),
+                    LocalTime.of((departure + duration) / 60, (departure + duration) % 60),
+                    10, 20, "BenchBus"));
+        }
+
+        long start = System.nanoTime();
+        JourneyPlanner planner = new JourneyPlanner(trips);
+        System.out.printf("Built planner over %d connections in %.0f ms%n", connections, (System.nanoTime() - start) / 1e6);
+
+        // warm up so the JIT has compiled the scan
+        for (int i = 0; i < 200; i++) {
+            planner.findJourneys("City" + random.nextInt(cities), "City" + random.nextInt(cities),
+                    firstDay.plusDays(random.nextInt(days)), 2);
+        }
+
+        long[] nanos = new long[queries];
+        int found = 0;
+        for (int i = 0; i < queries; i++) {
+            int from = random.nextInt(cities);
+            int to = (from + 1 + random.nextInt(cities - 1)) % cities;
+            LocalDate date = firstDay.plusDays(random.nextInt(days));
+            long t0 = System.nanoTime();
+            List<JourneyPlanner.Itinerary> journeys = planner.findJourneys("City" + from, "City" + to, date, 2);
+            nanos[i] = System.nanoTime() - t0;
+            if (!journeys.isEmpty()) {
+                found++;
+            }
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%d searches (%d with a journey): median %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                queries, found, nanos[queries / 2] / 1e6, nanos[queries * 99 / 100] / 1e6, nanos[queries - 1] / 1e6);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package transport;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Checks the random bus seats of SeatAllocator (user-017):
+ * - every free standard seat is picked about equally often, on an empty bus (random draws)
+ *   and on an almost full one (sampling among the free seats)
+ * - filling buses up in groups never hands out a taken seat or the same seat twice
+ * - with a seed the same bookings get the same seats
+ * and how long one allocation takes in both cases.
+ *
+ * Run: java -cp out transport.SeatAllocatorCheck [allocations]
+ */
+public class SeatAllocatorCheck {
+
+    public static void main(String[] args) {
+        int allocations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        uniform("empty bus", bus("U1"), allocations);
+        Bus almostFull = bus("U2");
+        List<Seat> standard = new ArrayList<>();
+        for (Seat seat : almostFull.getSeats()) {
+            if (!seat.isPremium()) {
+                standard.add(seat);
+            }
+        }
+        // every seat but each 5th taken, so the draws can't be used
+        for (int i = 0; i < standard.size(); i++) {
+            if (i % 5 != 0) {
+                almostFull.claimSeats(List.of(standard.get(i)));
+            }
+        }
+        uniform("almost full bus", almostFull, allocations);
+
+        fillUp(1000);
+        seeded();
+        System.out.println("✅ Random seats OK");
+    }
+
+    // no seat is picked more than 10% more/less often than the average
+    private static void uniform(String what, Bus bus, int allocations) {
+        int[] hits = new int[bus.getTotalSeats()];
+        long start = System.nanoTime();
+        for (int i = 0; i < allocations; i++) {
+            List<Seat> seats = allocate(bus, 3);
+            check(new HashSet<>(seats).size() == 3, "the same seat twice: " + seats);
+            for (Seat seat : seats) {
+                check(!seat.isOccupied() && !seat.isPremium(), "got seat " + seat.getSeatNumber());
+                hits[seat.getIndex()]++;
+            }
+        }
+        double nanos = (System.nanoTime() - start) / (double) allocations;
+
+        int free = bus.getAvailableSeats(false);
+        double expected = 3.0 * allocations / free;
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (Seat seat : bus.getSeats()) {
+            if (!seat.isPremium() && !seat.isOccupied()) {
+                min = Math.min(min, hits[seat.getIndex()]);
+                max = Math.max(max, hits[seat.getIndex()]);
+            }
+        }
+        check(min > expected * 0.9 && max < expected * 1.1,
+                what + ": picked between " + min + " and " + max + " times, about " + (int) expected + " expected");
+        System.out.printf("%s (%d free): each seat picked %d-%d times (expected %.0f), %.0f ns per allocation (with the checks)%n",
+                what, free, min, max, expected, nanos);
+    }
+
+    private static void fillUp(int buses) {
+        for (int r = 0; r < buses; r++) {
+            Bus bus = bus("F" + r);
+            int size = 1 + r % 4;
+            while (bus.getAvailableSeats(false) >= size) {
+                check(bus.claimSeats(allocate(bus, size)), "a taken seat was handed out on bus F" + r);
+            }
+        }
+        System.out.println("fill up: " + buses + " buses filled in groups of 1-4, never a taken seat");
+    }
+
+    private static void seeded() {
+        List<String> runs = new ArrayList<>();
+        for (int run = 0; run < 2; run++) {
+            SeatAllocator.setRandomSeed(42L);
+            Bus bus = bus("S1");
+            StringBuilder seats = new StringBuilder();
+            while (bus.getAvailableSeats(false) >= 4) {
+                List<Seat> group = allocate(bus, 4);
+                bus.claimSeats(group);
+                seats.append(group).append(';');
+            }
+            runs.add(seats.toString());
+        }
+        SeatAllocator.setRandomSeed(null);
+        check(runs.get(0).equals(runs.get(1)), "the same seed gave other seats");
+        System.out.println("seeded: the same seats twice, up to a full bus");
+    }
+
+    private static List<Seat> allocate(Bus bus, int count) {
+        try {
+            return SeatAllocator.allocateSeats(bus, count, false);
+        } catch (BookedSeatsException e) {
+            throw new AssertionError(e.getMessage(), e);
+        }
+    }
+
+    private static Bus bus(String id) {
+        return new Bus(id, "Berlin", "Leipzig", LocalDate.of(2026, 1, 1),
+                LocalTime.of(12, 0), LocalTime.of(14, 0), 10, 20, "FlixBus");
+    }
+
+    private static void check(boolean ok, String problem) {
+        if (!ok) {
+            throw new AssertionError(problem);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,179 @@
+package transport;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress test for the lock-free seat claiming (user-011): many threads claim, book, release
+ * and cancel random groups of seats on the same trip at once (each thread keeps at most a few
+ * groups, then gives the oldest back). Every thread notes itself as the owner of the seats it
+ * got, if a seat ever gets a second owner it was double booked.
+ * At the end every taken seat must have exactly one owner and the free seat counters must match.
+ *
+ * Run: java -cp out transport.SeatClaimStress [threads] [seconds]
+ */
+public class SeatClaimStress {
+
+    private static final int FREE = 0;
+    private static final int HELD_GROUPS = 4;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        claimAllOnBitmap(threads, seconds);
+        bookAndCancel(threads, seconds);
+        System.out.println("✅ No seat was ever taken twice");
+    }
+
+    // SeatOccupancy.claimAll/release straight on one bitmap
+    private static void claimAllOnBitmap(int threads, int seconds) throws Exception {
+        SeatOccupancy seats = new SeatOccupancy(200);
+        AtomicIntegerArray owners = new AtomicIntegerArray(seats.size());
+        AtomicLong claims = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+
+        run(threads, seconds, (owner, random, held) -> {
+            int[] group = randomGroup(random, seats.size());
+            if (!seats.claimAll(group)) {
+                conflicts.incrementAndGet();
+                return;
+            }
+            claims.incrementAndGet();
+            for (int seat : group) {
+                takeOwnership(owners, seat, owner);
+            }
+            held.add(() -> {
+                // the owner goes first, so whoever claims the seat next finds it free
+                for (int seat : group) {
+                    owners.set(seat, FREE);
+                    check(seats.release(seat), "seat " + seat + " was free although thread " + owner + " had it");
+                }
+            });
+        });
+
+        for (int seat = 0; seat < seats.size(); seat++) {
+            check(seats.isOccupied(seat) == (owners.get(seat) != FREE), "seat " + seat + " owner and bitmap differ");
+        }
+        System.out.printf("claimAll: %d claims, %d lost races, %d threads, %d s%n",
+                claims.get(), conflicts.get(), threads, seconds);
+    }
+
+    // Booking/cancel on one Transport, so the free seat counters are checked as well
+    private static void bookAndCancel(int threads, int seconds) throws Exception {
+        Transport train = new Train("STRESS1", "Berlin", "Munich", LocalDate.of(2026, 1, 1),
+                LocalTime.of(8, 0), LocalTime.of(12, 0), 50, 90, "ICE");
+        List<Seat> allSeats = train.getSeats();
+        AtomicIntegerArray owners = new AtomicIntegerArray(allSeats.size());
+        AtomicLong booked = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+
+        run(threads, seconds, (owner, random, held) -> {
+            List<Seat> group = new ArrayList<>();
+            for (int seat : randomGroup(random, allSeats.size())) {
+                group.add(allSeats.get(seat));
+            }
+            Booking booking;
+            try {
+                booking = new Booking(train, group, group.size(), "Thread " + owner, false);
+            } catch (BookedSeatsException e) {
+                conflicts.incrementAndGet();
+                return;
+            }
+            booked.incrementAndGet();
+            for (Seat seat : group) {
+                takeOwnership(owners, seat.getIndex(), owner);
+            }
+            held.add(() -> {
+                for (Seat seat : group) {
+                    owners.set(seat.getIndex(), FREE);
+                }
+                booking.cancel();
+            });
+        });
+
+        int taken = 0;
+        for (Seat seat : allSeats) {
+            boolean occupied = seat.isOccupied();
+            check(occupied == (owners.get(seat.getIndex()) != FREE), "seat " + seat.getSeatNumber() + " owner and bitmap differ");
+            if (occupied) {
+                taken++;
+            }
+        }
+        int free = train.getAvailableSeats(false) + train.getAvailableSeats(true);
+        check(free + taken == allSeats.size(), "free seat counters say " + free + " but " + taken + " of "
+                + allSeats.size() + " seats are taken");
+        System.out.printf("Booking:  %d bookings, %d lost races, %d seats taken at the end, counters match%n",
+                booked.get(), conflicts.get(), taken);
+    }
+
+    // one claim or booking, a success adds how to give the seats back to `held`
+    private interface Step {
+        void run(int owner, Random random, Deque<Runnable> held) throws Exception;
+    }
+
+    // every thread repeats the step until the time is up, the first failure stops the test.
+    // A thread keeps at most HELD_GROUPS groups, the seats still held at the end stay taken
+    private static void run(int threads, int seconds, Step step) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 1; t <= threads; t++) {
+            int owner = t;
+            futures.add(pool.submit(() -> {
+                Random random = new Random(owner);
+                Deque<Runnable> held = new ArrayDeque<>();
+                start.await();
+                while (System.nanoTime() < end) {
+                    step.run(owner, random, held);
+                    if (held.size() > HELD_GROUPS) {
+                        held.poll().run();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new AssertionError(e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // 1-4 different seats, mostly close together so the threads really fight over them
+    private static int[] randomGroup(Random random, int seats) {
+        int count = 1 + random.nextInt(4);
+        int first = random.nextInt(seats - 8);
+        Set<Integer> group = new LinkedHashSet<>();
+        while (group.size() < count) {
+            group.add(first + random.nextInt(8));
+        }
+        int[] result = new int[count];
+        int i = 0;
+        for (int seat : group) {
+            result[i++] = seat;
+        }
+        return result;
+    }
+
+    private static void takeOwnership(AtomicIntegerArray owners, int seat, int owner) {
+        int previous = owners.getAndSet(seat, owner);
+        check(previous == FREE, "seat " + seat + " double booked by threads " + previous + " and " + owner);
+    }
+
+    private static void check(boolean ok, String problem) {
+        if (!ok) {
+            throw new AssertionError(problem);
+        }
+    }
+}
\ No newline at end of file
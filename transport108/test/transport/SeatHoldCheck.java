@@ -0,0 +1,138 @@
+package transport;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Checks the seat holds and their timing wheel (user-015):
+ * - many holds run out on time and give all their seats back, confirmed ones stay booked
+ * - confirm right at the deadline: the hold is either booked or expired, never both/neither
+ * - a hot reload moves an active hold to the new version of its trip, so confirming it
+ *   books the new times/prices (and a seat picked from the old version can still be added)
+ *
+ * Run: java -cp out transport.SeatHoldCheck [trips]
+ */
+public class SeatHoldCheck {
+
+    public static void main(String[] args) throws Exception {
+        int trips = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        expireOnTime(trips);
+        confirmAtDeadline(300);
+        moveOnReload();
+        System.out.println("✅ Seat holds OK");
+    }
+
+    private static void expireOnTime(int trips) throws Exception {
+        SeatHoldManager holds = new SeatHoldManager(Duration.ofSeconds(5), 10, 512);
+        List<Transport> transports = new ArrayList<>(trips);
+        for (int i = 0; i < trips; i++) {
+            transports.add(train("HC" + i, 10));
+        }
+
+        long start = System.nanoTime();
+        List<SeatHold> held = new ArrayList<>();
+        for (Transport transport : transports) {
+            for (Seat seat : transport.getSeats()) {
+                held.add(holds.hold(transport, List.of(seat), "Hold " + held.size()));
+            }
+        }
+        double holdMillis = (System.nanoTime() - start) / 1e6;
+
+        // a quarter gets booked, a quarter given back, the rest has to run out
+        int confirmed = 0;
+        for (int i = 0; i < held.size(); i += 4) {
+            holds.confirm(held.get(i), 1, "Customer", false);
+            confirmed++;
+        }
+        for (int i = 1; i < held.size(); i += 4) {
+            holds.release(held.get(i));
+        }
+        while (holds.getActiveHolds() > 0) {
+            Thread.sleep(5);
+        }
+        double allOverMillis = (System.nanoTime() - start) / 1e6;
+
+        long free = 0;
+        long seats = 0;
+        for (Transport transport : transports) {
+            free += transport.getAvailableSeatCount();
+            seats += transport.getTotalSeats();
+        }
+        check(free == seats - confirmed, free + " free seats, " + (seats - confirmed) + " expected");
+        try {
+            holds.confirm(held.get(2), 1, "Customer", false);
+            check(false, "an expired hold was confirmed");
+        } catch (BookedSeatsException expected) {
+            // ran out, as it should
+        }
+        holds.shutdown();
+        System.out.printf("expiry: %d holds made in %.0f ms, all over after %.0f ms (hold time 5 s), %d expired, seats match%n",
+                held.size(), holdMillis, allOverMillis, holds.getExpiredHolds());
+    }
+
+    private static void confirmAtDeadline(int rounds) throws Exception {
+        SeatHoldManager holds = new SeatHoldManager(Duration.ofMillis(20), 1, 64);
+        int confirmed = 0;
+        int expired = 0;
+        for (int r = 0; r < rounds; r++) {
+            Transport train = train("RC" + r, 10);
+            Seat seat = train.getSeats().get(0);
+            SeatHold hold = holds.hold(train, List.of(seat), "Racer");
+            Thread.sleep(ThreadLocalRandom.current().nextInt(15, 25));
+            try {
+                holds.confirm(hold, 1, "Racer", false);
+                confirmed++;
+            } catch (BookedSeatsException e) {
+                expired++;
+            }
+            Thread.sleep(5);
+            check(seat.isOccupied() == (hold.getState() == SeatHold.State.CONFIRMED) && !seat.isHeld(),
+                    "hold " + hold.getState() + " but seat occupied=" + seat.isOccupied() + " held=" + seat.isHeld());
+        }
+        holds.shutdown();
+        System.out.printf("deadline race: %d confirmed, %d expired, no seat lost or left held%n", confirmed, expired);
+    }
+
+    private static void moveOnReload() throws Exception {
+        SeatHoldManager holds = new SeatHoldManager(Duration.ofMinutes(1), 10, 64);
+        Transport before = train("MV1", 10);
+        Transport after = train("MV1", 15);
+        after.shareSeatsWith(before);
+
+        SeatHold hold = holds.hold(before, List.of(before.getSeats().get(0)), "Mover");
+        holds.moveHolds(Map.of(before, after));
+        // picked on the seat map of the old version while the reload happened
+        holds.addSeat(hold, before.getSeats().get(1));
+
+        Booking booking = holds.confirm(hold, 2, "Mover", false);
+        check(booking.getTransport() == after, "the booking is on the old version of the trip");
+        for (Seat seat : booking.getBookedSeats()) {
+            check(seat.getTransport() == after && seat.isOccupied() && !seat.isHeld(),
+                    "seat " + seat.getSeatNumber() + " is not booked on the new version");
+        }
+        check(booking.getTotalPrice() == 2 * 15, "booked for " + booking.getTotalPrice() + " instead of the new price");
+
+        // over holds stay where they are
+        SeatHold released = holds.hold(before, List.of(before.getSeats().get(2)), "Mover");
+        holds.release(released);
+        holds.moveHolds(Map.of(before, after));
+        check(released.getTransport() == before, "a released hold was moved");
+        holds.shutdown();
+        System.out.println("reload: active hold moved to the new trip, booked at the new price");
+    }
+
+    private static Transport train(String id, double price) {
+        return new Train(id, "Berlin", "Hamburg", LocalDate.of(2026, 1, 1),
+                LocalTime.of(12, 0), LocalTime.of(14, 0), price, price * 2, "ICE");
+    }
+
+    private static void check(boolean ok, String problem) {
+        if (!ok) {
+            throw new AssertionError(problem);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package transport;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Heap used per transport now that the seat plans are shared layouts (user-012).
+ * Builds many trains, buses and flights, runs the GC and looks at the used heap before and
+ * after. Also checks that the seat views of a trip make sense (every seat number once,
+ * getSeat(number) finds it, equal views for the same seat).
+ *
+ * Run: java -cp out transport.SeatLayoutHeap [transports]
+ */
+public class SeatLayoutHeap {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        long before = usedHeap();
+        List<Transport> transports = new ArrayList<>(count);
+        LocalDate date = LocalDate.of(2026, 1, 1);
+        LocalTime departure = LocalTime.of(12, 0);
+        LocalTime arrival = LocalTime.of(14, 0);
+        for (int i = 0; i < count; i++) {
+            switch (i % 3) {
+                case 0:
+                    transports.add(new Train("T" + i, "Berlin", "Munich", date, departure, arrival, 50, 90, "ICE"));
+                    break;
+                case 1:
+                    transports.add(new Bus("B" + i, "Berlin", "Munich", date, departure, arrival, 20, 35, "FlixBus"));
+                    break;
+                default:
+                    transports.add(new Flight("F" + i, "Berlin", "Munich", date, departure, arrival, 80, 200, "Lufthansa"));
+            }
+        }
+        long after = usedHeap();
+
+        long seats = 0;
+        for (Transport transport : transports) {
+            seats += transport.getTotalSeats();
+        }
+        System.out.printf("%d transports (%d seats): %.1f MB, %.0f bytes per transport%n",
+                transports.size(), seats, (after - before) / 1e6, (after - before) / (double) transports.size());
+
+        for (Transport transport : transports.subList(0, 3)) {
+            checkSeats(transport);
+        }
+        System.out.println("✅ Seat views OK");
+    }
+
+    private static void checkSeats(Transport transport) {
+        Set<String> numbers = new HashSet<>();
+        for (Seat seat : transport.getSeats()) {
+            check(numbers.add(seat.getSeatNumber()), transport.getId() + ": seat " + seat.getSeatNumber() + " twice");
+            check(seat.equals(transport.getSeat(seat.getSeatNumber())),
+                    transport.getId() + ": getSeat(" + seat.getSeatNumber() + ") finds another seat");
+        }
+        check(numbers.size() == transport.getTotalSeats(), transport.getId() + ": " + numbers.size()
+                + " seat numbers for " + transport.getTotalSeats() + " seats");
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void check(boolean ok, String problem) {
+        if (!ok) {
+            throw new AssertionError(problem);
+        }
+    }
+}
\ No newline at end of file
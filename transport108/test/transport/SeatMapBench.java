@@ -0,0 +1,99 @@
+package transport;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * How long drawing a seat map takes with the cached templates (user-018), per vehicle type and
+ * class, and checks that the map shows what the trip has: one [X] per taken seat, one [H] per
+ * held seat, and that the ANSI map is the plain map plus colour codes.
+ *
+ * Run: java -cp out transport.SeatMapBench [maps]
+ */
+public class SeatMapBench {
+
+    public static void main(String[] args) throws Exception {
+        int maps = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        LocalDate date = LocalDate.of(2026, 1, 1);
+        List<Transport> transports = List.of(
+                new Train("SM1", "Berlin", "Munich", date, LocalTime.of(12, 0), LocalTime.of(16, 0), 50, 90, "ICE"),
+                new Bus("SM2", "Berlin", "Leipzig", date, LocalTime.of(12, 0), LocalTime.of(14, 0), 20, 35, "FlixBus"),
+                new Flight("SM3", "Berlin", "Munich", date, LocalTime.of(12, 0), LocalTime.of(13, 0), 80, 200, "Lufthansa"));
+        SeatHoldManager holds = new SeatHoldManager();
+        PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+
+        for (Transport transport : transports) {
+            Random random = new Random(18);
+            for (Seat seat : transport.getSeats()) {
+                int pick = random.nextInt(4);
+                if (pick == 0) {
+                    transport.claimSeats(List.of(seat));
+                } else if (pick == 1) {
+                    holds.hold(transport, List.of(seat), "Viewer");
+                }
+            }
+
+            for (boolean premium : new boolean[]{false, true}) {
+                checkMarks(transport, premium);
+
+                for (int i = 0; i < maps / 10; i++) {
+                    SeatMapRenderer.print(transport, premium, SeatMapRenderer.Style.PLAIN, nowhere);
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < maps; i++) {
+                    SeatMapRenderer.print(transport, premium, SeatMapRenderer.Style.PLAIN, nowhere);
+                }
+                double plain = (System.nanoTime() - start) / (double) maps;
+                start = System.nanoTime();
+                for (int i = 0; i < maps; i++) {
+                    SeatMapRenderer.print(transport, premium, SeatMapRenderer.Style.ANSI, nowhere);
+                }
+                double ansi = (System.nanoTime() - start) / (double) maps;
+                System.out.printf("%-6s %-8s: %.1f us plain, %.1f us ANSI per map%n", transport.getType(),
+                        premium ? "premium" : "standard", plain / 1000, ansi / 1000);
+            }
+        }
+        holds.shutdown();
+        System.out.println("✅ Seat maps OK");
+    }
+
+    private static void checkMarks(Transport transport, boolean premium) {
+        int taken = 0;
+        int held = 0;
+        for (Seat seat : transport.getSeats()) {
+            if (seat.isPremium() != premium) {
+                continue;
+            }
+            if (seat.isHeld()) {
+                held++;
+            } else if (seat.isOccupied()) {
+                taken++;
+            }
+        }
+        String plain = SeatMapRenderer.render(transport, premium, SeatMapRenderer.Style.PLAIN);
+        // the legend has one of each
+        check(count(plain, "[X]") - 1 == taken, transport.getType() + ": " + (count(plain, "[X]") - 1)
+                + " seats drawn taken, " + taken + " are");
+        check(count(plain, "[H]") - 1 == held, transport.getType() + ": " + (count(plain, "[H]") - 1)
+                + " seats drawn held, " + held + " are");
+        String ansi = SeatMapRenderer.render(transport, premium, SeatMapRenderer.Style.ANSI);
+        check(ansi.replaceAll("\u001B\\[[0-9;]*m", "").equals(plain), transport.getType() + ": ANSI map differs from the plain one");
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void check(boolean ok, String problem) {
+        if (!ok) {
+            throw new AssertionError(problem);
+        }
+    }
+}
\ No newline at end of file
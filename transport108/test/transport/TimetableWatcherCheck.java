@@ -0,0 +1,155 @@
+package transport;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Hot reload of edited timetable files (user-025), on two small files in a temp folder:
+ * - a change between watch() and start() (while "loading") is not lost
+ * - retime, reprice, removed and added lines in one file: a booking on the retimed trip moves
+ *   to the new version and keeps its seats, the search sees the new trips
+ * - deleting a whole file removes its trips
+ * while another thread keeps searching the whole time (no errors allowed).
+ *
+ * Run: java -cp out transport.TimetableWatcherCheck
+ */
+public class TimetableWatcherCheck {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 1, 10);
+
+    public static void main(String[] args) throws Exception {
+        Path folder = Files.createTempDirectory("timetable-watch");
+        Path trains = folder.resolve("trains.txt");
+        Path others = folder.resolve("others.txt");
+        Files.write(trains, List.of("# trains",
+                "TRAIN,ICE100,Berlin,Munich," + DAY + ",07:00,11:15,59.90,99.90,ICE",
+                "TRAIN,ICE102,Berlin,Munich," + DAY + ",09:00,13:15,59.90,99.90,ICE",
+                "TRAIN,RE200,Berlin,Leipzig," + DAY + ",08:00,09:30,19.90,29.90,RE"));
+        Files.write(others, List.of("BUS,FB1,Berlin,Munich," + DAY + ",06:00,13:00,24.90,34.90,FlixBus",
+                "FLIGHT,LH1,Berlin,Munich," + DAY + ",10:00,11:05,89.00,249.00,Lufthansa"));
+
+        // registered before the "load", like DatabaseManager.watch()
+        TimetableWatcher watcher = new TimetableWatcher(folder, OccupancySimulator.none());
+        List<Transport> trips = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        int[] ends = new int[2];
+        for (Path file : List.of(others, trains)) {
+            trips.addAll(DatabaseManager.loadFile(file.toFile()));
+            ends[files.size()] = trips.size();
+            files.add(folder.relativize(file));
+        }
+        Files.writeString(others, "BUS,FB9,Berlin,Munich," + DAY + ",05:00,12:00,9.90,19.90,FlixBus\n",
+                StandardOpenOption.APPEND);
+
+        Transport ice = find(trips, "ICE100");
+        Booking booking = new Booking(ice, List.of(new Seat(ice, 3), new Seat(ice, 4)), 2, "Watcher", false);
+        TripSearcher searcher = new TripSearcher(trips);
+        List<Booking> bookings = new CopyOnWriteArrayList<>(List.of(booking));
+        BlockingQueue<TimetableWatcher.Reload> reloads = new LinkedBlockingQueue<>();
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong searches = new AtomicLong();
+        AtomicInteger errors = new AtomicInteger();
+        Thread searching = new Thread(() -> {
+            while (!stop.get()) {
+                try {
+                    searcher.searchTrips("Berlin", "Munich", DAY);
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+                searches.incrementAndGet();
+            }
+        });
+        searching.start();
+
+        watcher.start(new Timetable(trips, files, ends), reload -> {
+            searcher.reload(reload.getTransports());
+            for (Booking b : bookings) {
+                Transport moved = reload.getReplaced().get(b.getTransport());
+                if (moved != null) {
+                    b.moveTo(moved);
+                }
+            }
+            reloads.add(reload);
+        });
+
+        TimetableWatcher.Reload early = next(reloads);
+        check(find(early.getTransports(), "FB9") != null, "the change made while loading was lost");
+        System.out.println("change while loading: " + early);
+
+        int seatsBefore = ice.getAvailableSeatCount();
+        Files.write(trains, List.of("# trains",
+                "TRAIN,ICE100,Berlin,Munich," + DAY + ",07:30,11:45,59.90,99.90,ICE",
+                "TRAIN,ICE102,Berlin,Munich," + DAY + ",09:00,13:15,39.90,99.90,ICE",
+                "TRAIN,ICE104,Berlin,Munich," + DAY + ",22:00,23:59,29.90,49.90,ICE"));
+        TimetableWatcher.Reload edit = next(reloads);
+        check(edit.getAdded() == 1 && edit.getRemoved() == 1 && edit.getRetimed() == 1 && edit.getRepriced() == 1,
+                "edit counted as " + edit);
+        Transport retimed = find(edit.getTransports(), "ICE100");
+        check(retimed != ice && retimed.getDepartureTime().equals(LocalTime.of(7, 30)), "ICE100 was not retimed");
+        check(booking.getTransport() == retimed && booking.getBookedSeats().get(0).getTransport() == retimed,
+                "the booking stayed on the old ICE100");
+        check(retimed.getAvailableSeatCount() == seatsBefore && retimed.isSeatOccupied(3),
+                "the booked seats are not taken on the new ICE100");
+        check(find(edit.getTransports(), "RE200") == null, "the removed line is still there");
+        List<Transport> found = searcher.searchTrips("Berlin", "Munich", DAY);
+        check(found.stream().anyMatch(t -> t.getId().equals("ICE104")), "the search does not see the added trip");
+        System.out.println("edit: " + edit);
+
+        booking.cancel();
+        check(retimed.getAvailableSeatCount() == seatsBefore + 2 && ice.getAvailableSeatCount() == seatsBefore + 2,
+                "cancelling on the new version did not free the shared seats");
+
+        int before = edit.getTransports().size();
+        Files.delete(others);
+        TimetableWatcher.Reload deleted = next(reloads);
+        check(deleted.getTransports().size() == before - 3 && find(deleted.getTransports(), "LH1") == null,
+                "deleting the file left " + deleted.getTransports().size() + " of " + before + " trips");
+        System.out.println("delete: " + deleted);
+
+        stop.set(true);
+        searching.join();
+        watcher.close();
+        delete(folder);
+        check(errors.get() == 0, errors.get() + " searches failed during the reloads");
+        System.out.println(searches.get() + " searches during the reloads, no errors");
+        System.out.println("✅ Hot reload OK");
+    }
+
+    private static TimetableWatcher.Reload next(BlockingQueue<TimetableWatcher.Reload> reloads) throws InterruptedException {
+        TimetableWatcher.Reload reload = reloads.poll(20, TimeUnit.SECONDS);
+        check(reload != null, "no reload within 20 s");
+        return reload;
+    }
+
+    private static Transport find(List<Transport> trips, String id) {
+        for (Transport trip : trips) {
+            if (trip.getId().equals(id) && trip.getDate().equals(DAY)) {
+                return trip;
+            }
+        }
+        return null;
+    }
+
+    private static void delete(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static void check(boolean ok, String problem) {
+        if (!ok) {
+            throw new AssertionError(problem);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package transport;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * TripLineParser against the old split(",") + trim() + parse() way of reading a line (user-020).
+ * Both read the same made up lines (a few million, like a big timetable file): every line
+ * must come out the same, then lines per second for each. At the end a few broken lines
+ * show the error messages (columns count characters, not bytes).
+ *
+ * Run: java -cp out transport.TripLineParserBench [lines]
+ */
+public class TripLineParserBench {
+
+    private static final String[] CITIES = {"Berlin", "Hamburg", "München", "Köln", "Frankfurt",
+            "Düsseldorf", "Stuttgart", "Leipzig", "Nürnberg", "Dresden"};
+    private static final String[][] TYPES = {{"TRAIN", "ICE"}, {"BUS", "FlixBus"}, {"FLIGHT", "Lufthansa"}};
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 3_000_000;
+        List<String> lines = lines(count);
+        byte[] data = String.join("\n", lines).concat("\n").getBytes(StandardCharsets.UTF_8);
+
+        sameAsSplit(lines);
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (String line : lines) {
+                splitParse(line.trim());
+            }
+            long split = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            TripLineParser parser = new TripLineParser();
+            int lineStart = 0;
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] == '\n') {
+                    parser.parse(data, lineStart, i);
+                    sink += parser.getDate().getDayOfMonth() + parser.getDepartureTime().getMinute()
+                            + (long) parser.getStandardPrice() + parser.getExtraInfo().length();
+                    lineStart = i + 1;
+                }
+            }
+            long bytes = System.nanoTime() - start;
+            System.out.printf("split: %.2f M lines/s | TripLineParser: %.2f M lines/s%n",
+                    count / (split / 1e9) / 1e6, count / (bytes / 1e9) / 1e6);
+        }
+
+        for (String broken : new String[]{
+                "TRAIN,ICE1,Berlin,München,2025-13-01,08:00,09:00,1,2,ICE",
+                "BUS,B1,Düsseldorf,Köln,2025-12-01,8:00,09:00,1,2,FlixBus",
+                "FLIGHT,LH1,Nürnberg,Berlin,2025-12-01,08:00,09:00,1a,2,Lufthansa",
+                "TRAIN,ICE1,Berlin,München,2025-12-01,08:00",
+                "TRAIN,ICE1,Berlin,München,2025-12-01,08:00,09:00,1,2,ICE,extra",
+                "TRAIN,ICE1,Berlin,München,2025-12-01,08:00,09:00,1,2,ICE,,"}) {
+            byte[] line = broken.getBytes(StandardCharsets.UTF_8);
+            try {
+                new TripLineParser().parse(line, 0, line.length);
+                System.out.println("ok     " + broken);
+            } catch (IllegalArgumentException e) {
+                System.out.println("error  " + broken + "\n       " + e.getMessage());
+            }
+        }
+        // printed so the JIT can't drop the parsing
+        System.out.println("✅ Parser OK (checksum " + sink + ")");
+    }
+
+    // every field of every line the same as split(",") gives (+ a trailing comma now and then)
+    private static void sameAsSplit(List<String> lines) {
+        TripLineParser parser = new TripLineParser();
+        for (int i = 0; i < lines.size(); i += 97) {
+            String line = i % 2 == 0 ? lines.get(i) : lines.get(i) + ",";
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            check(parser.parse(bytes, 0, bytes.length), "not a trip: " + line);
+            String[] parts = line.split(",");
+            check(parser.getType().equals(parts[0].trim()) && parser.getId().equals(parts[1].trim())
+                    && parser.getDeparture().equals(parts[2].trim()) && parser.getArrival().equals(parts[3].trim())
+                    && parser.getDate().equals(LocalDate.parse(parts[4].trim()))
+                    && parser.getDepartureTime().equals(LocalTime.parse(parts[5].trim()))
+                    && parser.getArrivalTime().equals(LocalTime.parse(parts[6].trim()))
+                    && parser.getStandardPrice() == Double.parseDouble(parts[7].trim())
+                    && parser.getPremiumPrice() == Double.parseDouble(parts[8].trim())
+                    && parser.getExtraInfo().equals(parts[9].trim()), "different fields: " + line);
+        }
+    }
+
+    private static void splitParse(String line) {
+        String[] parts = line.split(",");
+        if (parts.length != 10) {
+            throw new IllegalArgumentException("Expected 10 fields, got " + parts.length);
+        }
+        LocalDate date = LocalDate.parse(parts[4].trim());
+        LocalTime departure = LocalTime.parse(parts[5].trim());
+        LocalTime.parse(parts[6].trim());
+        double price = Double.parseDouble(parts[7].trim());
+        Double.parseDouble(parts[8].trim());
+        sink += date.getDayOfMonth() + departure.getMinute() + (long) price + parts[9].trim().length();
+    }
+
+    private static List<String> lines(int count) {
+        Random random = new Random(20);
+        List<String> lines = new ArrayList<>(count);
+        LocalDate firstDay = LocalDate.of(2025, 12, 1);
+        for (int i = 0; i < count; i++) {
+            String[] type = TYPES[random.nextInt(TYPES.length)];
+            int from = random.nextInt(CITIES.length);
+            int to = (from + 1 + random.nextInt(CITIES.length - 1)) % CITIES.length;
+            int departure = random.nextInt(1200);
+            int arrival = departure + 30 + random.nextInt(200);
+            lines.add(String.format(Locale.ROOT, "%s,%s%d,%s,%s,%s,%02d:%02d,%02d:%02d,%.2f,%.1f,%s",
+                    type[0], type[0].charAt(0), i, CITIES[from], CITIES[to], firstDay.plusDays(random.nextInt(60)),
+                    departure / 60, departure % 60, arrival / 60, arrival % 60,
+                    19.9 + random.nextInt(100), 49.5 + random.nextInt(150), type[1]));
+        }
+        return lines;
+    }
+
+    private static void check(boolean ok, String problem) {
+        if (!ok) {
+            throw new AssertionError(problem);
+        }
+    }
+}
\ No newline at end of file